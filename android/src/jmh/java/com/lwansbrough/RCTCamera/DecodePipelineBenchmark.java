@@ -0,0 +1,204 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path of the barcode scanner on synthetic portrait NV21 frames, off-device.
+ *
+ * Every stage runs the scanner's own classes (the Android-free part of the pipeline), next to the
+ * pipeline the scanner used before (rotated copy + PlanarYUVLuminanceSource + HybridBinarizer +
+ * MultiFormatReader) as a baseline. Sample mode reports latency percentiles; run with `-prof gc`
+ * for the allocation rate:
+ *
+ *     java -jar build/libs/*-jmh.jar DecodePipelineBenchmark -prof gc -rf json
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodePipelineBenchmark {
+    private static final int ROTATION = 90;
+
+    @Param({"480p", "720p", "1080p"})
+    public String resolution;
+
+    @Param({"qr", "code128", "ean13"})
+    public String symbology;
+
+    private int _width;
+    private int _height;
+    private byte[] _frame;
+    private byte[] _emptyFrame;
+    private byte[] _luminanceMatrix;
+
+    private MultiFormatReader _legacyReader;
+    private AdaptiveBarcodeReader _reader;
+    private BinarizerStrategy _binarizer;
+    private PyramidDecoder _pyramidDecoder;
+    private PyramidDecoder.Reader _pyramidReader;
+    private SharpnessGate _sharpnessGate;
+    private SceneChangeDetector _sceneChangeDetector;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] size = SyntheticFrames.resolution(resolution);
+        _width = size[0];
+        _height = size[1];
+        BarcodeFormat format = SyntheticFrames.format(symbology);
+        _frame = SyntheticFrames.singleCode(_width, _height, format);
+        _emptyFrame = SyntheticFrames.empty(_width, _height);
+
+        EnumSet<BarcodeFormat> formats = EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.CODE_128, BarcodeFormat.EAN_13);
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+        _legacyReader = new MultiFormatReader();
+        _legacyReader.setHints(hints);
+
+        _reader = new AdaptiveBarcodeReader();
+        _reader.setFormats(formats);
+        _binarizer = new BinarizerStrategy();
+        _pyramidDecoder = new PyramidDecoder();
+        _pyramidDecoder.configure(2, PyramidDecoder.DEFAULT_ESCALATE_AFTER);
+        _pyramidReader = new PyramidDecoder.Reader() {
+            @Override
+            public Result decode(LuminanceSource source) throws Exception {
+                return _binarizer.decode(source, _reader);
+            }
+        };
+        _sharpnessGate = new SharpnessGate();
+        _sharpnessGate.configure(0.6f);
+        _sceneChangeDetector = new SceneChangeDetector();
+        _sceneChangeDetector.configure(6, SceneChangeDetector.DEFAULT_MAX_SKIP_INTERVAL);
+        _sceneChangeDetector.hasChanged(_emptyFrame, _width, _height, 0);
+        _sceneChangeDetector.commit(0);
+
+        // fail fast on frames the pipeline cannot read
+        if (legacyDecode() == null || decode() == null) {
+            throw new IllegalStateException("Synthetic " + symbology + " frame does not decode at " + resolution);
+        }
+    }
+
+    /**
+     * The pipeline before: rotated copy of the whole frame, then a fresh source per frame.
+     */
+    @Benchmark
+    public Result legacyDecode() {
+        byte[] rotated = new byte[_frame.length];
+        for (int y = 0; y < _height; y++) {
+            for (int x = 0; x < _width; x++) {
+                rotated[x * _height + _height - y - 1] = _frame[x + y * _width];
+            }
+        }
+        try {
+            PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(rotated, _height, _width, 0, 0, _height, _width, false);
+            return _legacyReader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source)));
+        } catch (NotFoundException e) {
+            return null;
+        } finally {
+            _legacyReader.reset();
+        }
+    }
+
+    /**
+     * Rotation alone: laying out the rotated matrix into the reused buffer.
+     */
+    @Benchmark
+    public byte[] rotatedMatrix() {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(_frame, _width, _height, ROTATION, _luminanceMatrix);
+        byte[] matrix = source.getMatrix();
+        _luminanceMatrix = source.getMatrixBuffer();
+        return matrix;
+    }
+
+    @Benchmark
+    public BitMatrix hybridBinarize() throws NotFoundException {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(_frame, _width, _height, ROTATION, _luminanceMatrix);
+        BitMatrix matrix = new HybridBinarizer(source).getBlackMatrix();
+        _luminanceMatrix = source.getMatrixBuffer();
+        return matrix;
+    }
+
+    /**
+     * The serial path of the scanner with default settings.
+     */
+    @Benchmark
+    public Result decode() {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(_frame, _width, _height, ROTATION, _luminanceMatrix);
+        try {
+            return _binarizer.decode(source, _reader);
+        } catch (NotFoundException e) {
+            return null;
+        } finally {
+            _reader.reset();
+            _luminanceMatrix = source.getMatrixBuffer();
+        }
+    }
+
+    @Benchmark
+    public Result pyramidDecode() {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(_frame, _width, _height, ROTATION, _luminanceMatrix);
+        try {
+            return _pyramidDecoder.decode(source, _pyramidReader, true);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            _reader.reset();
+            _luminanceMatrix = source.getMatrixBuffer();
+        }
+    }
+
+    /**
+     * A miss on a frame without a code: what every idle frame costs.
+     */
+    @Benchmark
+    public Result decodeEmptyFrame() {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(_emptyFrame, _width, _height, ROTATION, _luminanceMatrix);
+        try {
+            return _binarizer.decode(source, _reader);
+        } catch (NotFoundException e) {
+            return null;
+        } finally {
+            _reader.reset();
+            _luminanceMatrix = source.getMatrixBuffer();
+        }
+    }
+
+    @Benchmark
+    public boolean sharpnessGate() {
+        return _sharpnessGate.accept(_frame, _width, _height);
+    }
+
+    @Benchmark
+    public boolean sceneChange() {
+        return _sceneChangeDetector.hasChanged(_frame, _width, _height, 0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading the four codes of a frame with one multiBarcode pass, against four single-code
+ * decodes of the quadrants they sit in.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiBarcodeBenchmark {
+    private static final int ROTATION = 90;
+    private static final int CODES = 4;
+
+    @Param({"720p", "1080p"})
+    public String resolution;
+
+    @Param({"qr", "code128"})
+    public String symbology;
+
+    private int _width;
+    private int _height;
+    private byte[] _frame;
+    private byte[] _luminanceMatrix;
+
+    private AdaptiveBarcodeReader _reader;
+    private BinarizerStrategy _binarizer;
+    private MultiBarcodeDecoder _multiBarcodeDecoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] size = SyntheticFrames.resolution(resolution);
+        _width = size[0];
+        _height = size[1];
+        BarcodeFormat format = SyntheticFrames.format(symbology);
+        _frame = SyntheticFrames.codeGrid(_width, _height, format);
+
+        _reader = new AdaptiveBarcodeReader();
+        _reader.setFormats(EnumSet.of(format));
+        _binarizer = new BinarizerStrategy();
+        _multiBarcodeDecoder = new MultiBarcodeDecoder(_reader);
+
+        Result[] results = multiDecode();
+        if (results == null || results.length != CODES || singleDecodes() != CODES) {
+            throw new IllegalStateException("Synthetic " + symbology + " grid does not decode at " + resolution);
+        }
+    }
+
+    @Benchmark
+    public Result[] multiDecode() {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(_frame, _width, _height, ROTATION, _luminanceMatrix);
+        try {
+            return _multiBarcodeDecoder.decode(source, CODES);
+        } catch (NotFoundException e) {
+            return null;
+        } finally {
+            _reader.reset();
+            _luminanceMatrix = source.getMatrixBuffer();
+        }
+    }
+
+    /**
+     * @return the number of codes found
+     */
+    @Benchmark
+    public int singleDecodes() {
+        // quadrants of the upright frame
+        int quadrantWidth = _height / 2;
+        int quadrantHeight = _width / 2;
+        int found = 0;
+        for (int i = 0; i < CODES; i++) {
+            RotatedLuminanceSource source = new RotatedLuminanceSource(_frame, _width, _height, ROTATION,
+                    (i % 2) * quadrantWidth, (i / 2) * quadrantHeight, quadrantWidth, quadrantHeight, _luminanceMatrix);
+            try {
+                _binarizer.decode(source, _reader);
+                found++;
+            } catch (NotFoundException e) {
+                // counted as missing
+            } finally {
+                _reader.reset();
+                _luminanceMatrix = source.getMatrixBuffer();
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,117 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.NotFoundException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Streams recorded NV21 frames through the scanner's decode path at a fixed rate and reports
+ * throughput, drops and heap use, without a device:
+ *
+ *     java -cp build/libs/*-jmh.jar com.lwansbrough.RCTCamera.ReplayLoadTest \
+ *         --size 1280x720 --fps 30 --seconds 60 recording.nv21 [more.nv21 ...]
+ *
+ * Without a recording a synthetic one is generated, alternating QR frames with empty ones.
+ */
+public class ReplayLoadTest {
+    public static void main(String[] args) throws Exception {
+        int width = 1280;
+        int height = 720;
+        int fps = 30;
+        int seconds = 30;
+        int rotation = 90;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--size".equals(args[i])) {
+                String[] size = args[++i].split("x");
+                width = Integer.parseInt(size[0]);
+                height = Integer.parseInt(size[1]);
+            } else if ("--fps".equals(args[i])) {
+                fps = Integer.parseInt(args[++i]);
+            } else if ("--seconds".equals(args[i])) {
+                seconds = Integer.parseInt(args[++i]);
+            } else if ("--rotation".equals(args[i])) {
+                rotation = Integer.parseInt(args[++i]);
+            } else {
+                files.add(new File(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            files.add(writeSyntheticRecording(width, height));
+        }
+
+        final AdaptiveBarcodeReader reader = new AdaptiveBarcodeReader();
+        reader.setFormats(EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.CODE_128, BarcodeFormat.EAN_13));
+        final BinarizerStrategy binarizer = new BinarizerStrategy();
+        final long[] counts = new long[3];
+
+        FileReplayFrameSource source = new FileReplayFrameSource(files, width, height, rotation, fps, true);
+        source.start(new FrameSource.Listener() {
+            private byte[] _luminanceMatrix;
+
+            @Override
+            public void onFrame(FrameSource.Frame frame) {
+                long start = System.nanoTime();
+                RotatedLuminanceSource luminance = new RotatedLuminanceSource(frame.data, frame.width, frame.height,
+                        frame.rotation, _luminanceMatrix);
+                boolean found = false;
+                try {
+                    binarizer.decode(luminance, reader);
+                    found = true;
+                } catch (NotFoundException e) {
+                    // idle frame
+                } finally {
+                    reader.reset();
+                    _luminanceMatrix = luminance.getMatrixBuffer();
+                    frame.release();
+                }
+                synchronized (counts) {
+                    counts[0]++;
+                    counts[1] += found ? 1 : 0;
+                    counts[2] += System.nanoTime() - start;
+                }
+            }
+        });
+
+        Runtime runtime = Runtime.getRuntime();
+        long peakHeap = 0;
+        for (int second = 1; second <= seconds; second++) {
+            Thread.sleep(1000);
+            peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+            synchronized (counts) {
+                System.out.printf("%3ds decoded=%d hits=%d dropped=%d avg=%.2fms heap=%dKB%n", second, counts[0],
+                        counts[1], source.getDroppedCount(), counts[0] == 0 ? 0 : counts[2] / 1e6 / counts[0],
+                        (runtime.totalMemory() - runtime.freeMemory()) / 1024);
+            }
+        }
+        source.stop();
+
+        synchronized (counts) {
+            System.out.printf("throughput=%.1f fps delivered=%d dropped=%d peakHeap=%dKB%n", counts[0] / (double) seconds,
+                    source.getDeliveredCount(), source.getDroppedCount(), peakHeap / 1024);
+        }
+    }
+
+    private static File writeSyntheticRecording(int width, int height) throws IOException {
+        File file = File.createTempFile("replay", ".nv21");
+        file.deleteOnExit();
+        byte[] code = SyntheticFrames.singleCode(width, height, BarcodeFormat.QR_CODE);
+        byte[] empty = SyntheticFrames.empty(width, height);
+        OutputStream output = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < 30; i++) {
+                output.write(i % 2 == 0 ? code : empty);
+            }
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,144 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Renders barcodes into synthetic NV21 preview frames, as a back camera held in portrait would
+ * deliver them: the sensor frame is landscape and the code reads upright once the frame is rotated
+ * 90 degrees clockwise, which is what the scanner does for portrait frames.
+ */
+final class SyntheticFrames {
+    private static final int BACKGROUND = 180;
+    private static final int DARK = 40;
+    private static final int LIGHT = 215;
+    private static final int NOISE = 12;
+
+    private SyntheticFrames() {
+    }
+
+    static int[] resolution(String name) {
+        if ("480p".equals(name)) {
+            return new int[]{640, 480};
+        } else if ("720p".equals(name)) {
+            return new int[]{1280, 720};
+        } else if ("1080p".equals(name)) {
+            return new int[]{1920, 1080};
+        }
+        throw new IllegalArgumentException("Unknown resolution: " + name);
+    }
+
+    static BarcodeFormat format(String symbology) {
+        if ("qr".equals(symbology)) {
+            return BarcodeFormat.QR_CODE;
+        } else if ("code128".equals(symbology)) {
+            return BarcodeFormat.CODE_128;
+        } else if ("ean13".equals(symbology)) {
+            return BarcodeFormat.EAN_13;
+        }
+        throw new IllegalArgumentException("Unknown symbology: " + symbology);
+    }
+
+    static String contents(BarcodeFormat format, int index) {
+        switch (format) {
+            case EAN_13:
+                return index % 2 == 0 ? "5901234123457" : "4006381333931";
+            case CODE_128:
+                return "TOTE-" + (100000 + index);
+            default:
+                return "https://example.com/shelf/" + index;
+        }
+    }
+
+    /**
+     * A frame with one code in the middle, spanning about half of the shorter side.
+     */
+    static byte[] singleCode(int width, int height, BarcodeFormat format) {
+        byte[] frame = background(width, height);
+        // upright image is height x width once rotated
+        int size = Math.min(width, height) / 2;
+        render(frame, width, height, format, contents(format, 0), (height - size) / 2, (width - size) / 2, size);
+        return frame;
+    }
+
+    /**
+     * A frame with one code in the middle of each quadrant of the upright image.
+     */
+    static byte[] codeGrid(int width, int height, BarcodeFormat format) {
+        byte[] frame = background(width, height);
+        int quadrantWidth = height / 2;
+        int quadrantHeight = width / 2;
+        int size = Math.min(quadrantWidth, quadrantHeight) * 3 / 4;
+        for (int i = 0; i < 4; i++) {
+            int left = (i % 2) * quadrantWidth + (quadrantWidth - size) / 2;
+            int top = (i / 2) * quadrantHeight + (quadrantHeight - size) / 2;
+            render(frame, width, height, format, contents(format, i), left, top, size);
+        }
+        return frame;
+    }
+
+    /**
+     * A frame of the same background without any code.
+     */
+    static byte[] empty(int width, int height) {
+        return background(width, height);
+    }
+
+    private static byte[] background(int width, int height) {
+        byte[] frame = new byte[width * height * 3 / 2];
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // soft vignette plus sensor noise
+                int shade = BACKGROUND - Math.abs(x - width / 2) * 30 / width - Math.abs(y - height / 2) * 30 / height;
+                frame[y * width + x] = (byte) clamp(shade + random.nextInt(2 * NOISE + 1) - NOISE);
+            }
+        }
+        // neutral chroma
+        for (int i = width * height; i < frame.length; i++) {
+            frame[i] = (byte) 128;
+        }
+        return frame;
+    }
+
+    /**
+     * Draws a code at (left, top) of the upright image, i.e. the frame rotated 90 degrees clockwise.
+     */
+    private static void render(byte[] frame, int width, int height, BarcodeFormat format, String contents,
+                               int left, int top, int size) {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 2);
+        int codeHeight = format == BarcodeFormat.QR_CODE ? size : size / 2;
+        BitMatrix code;
+        try {
+            code = new MultiFormatWriter().encode(contents, format, size, codeHeight, hints);
+        } catch (WriterException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Random random = new Random(contents.hashCode());
+        for (int y = 0; y < code.getHeight(); y++) {
+            for (int x = 0; x < code.getWidth(); x++) {
+                int uprightX = left + x;
+                int uprightY = top + y;
+                if (uprightX >= height || uprightY >= width) {
+                    continue;
+                }
+                int value = (code.get(x, y) ? DARK : LIGHT) + random.nextInt(2 * NOISE + 1) - NOISE;
+                // inverse of RotatedLuminanceSource's 90 degree mapping
+                frame[(height - 1 - uprightX) * width + uprightY] = (byte) clamp(value);
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,287 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.datamatrix.DataMatrixReader;
+import com.google.zxing.maxicode.MaxiCodeReader;
+import com.google.zxing.oned.CodaBarReader;
+import com.google.zxing.oned.Code128Reader;
+import com.google.zxing.oned.Code39Reader;
+import com.google.zxing.oned.Code93Reader;
+import com.google.zxing.oned.ITFReader;
+import com.google.zxing.oned.MultiFormatUPCEANReader;
+import com.google.zxing.oned.OneDReader;
+import com.google.zxing.oned.rss.RSS14Reader;
+import com.google.zxing.oned.rss.expanded.RSSExpandedReader;
+import com.google.zxing.pdf417.PDF417Reader;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drop-in replacement for the MultiFormatReader of the serial decode path that learns from what it
+ * decodes.
+ *
+ * It holds the same readers MultiFormatReader would build for the requested formats, and counts hits
+ * per format. When adaptive ordering is on, the readers (and the 1D readers within the 1D pass) are
+ * tried in order of hits, so the formats a deployment actually sees are tried first; readers that
+ * never hit are still tried, last, so other formats stay readable.
+ *
+ * A reader failing with a checksum or format error found a symbol it could not read: a near-miss.
+ * After `tryHarderAfter` near-misses without a hit, the next decode is made with TRY_HARDER.
+ */
+class AdaptiveBarcodeReader implements Reader {
+    private final List<Family> _families = new ArrayList<>();
+    private final OrderedOneDReader _oneDReader = new OrderedOneDReader();
+    private Map<DecodeHintType, Object> _hints = new EnumMap<>(DecodeHintType.class);
+    private Map<DecodeHintType, Object> _tryHarderHints = new EnumMap<>(DecodeHintType.class);
+
+    private final EnumMap<BarcodeFormat, Long> _formatHits = new EnumMap<>(BarcodeFormat.class);
+    private boolean _adaptive = false;
+    private int _tryHarderAfter = 0;
+    private int _nearMissRun = 0;
+    private long _nearMissCount = 0;
+    private long _tryHarderAttempts = 0;
+    private long _tryHarderHits = 0;
+
+    private final Comparator<Family> _byHits = new Comparator<Family>() {
+        @Override
+        public int compare(Family a, Family b) {
+            long hitsA = getHits(a.formats);
+            long hitsB = getHits(b.formats);
+            return hitsA == hitsB ? 0 : (hitsA > hitsB ? -1 : 1);
+        }
+    };
+
+    /**
+     * Builds the readers for the given formats, in MultiFormatReader's order. Like
+     * MultiFormatReader, no formats at all means all of them.
+     */
+    public synchronized void setFormats(Set<BarcodeFormat> requestedFormats) {
+        EnumSet<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        formats.addAll(requestedFormats);
+        if (formats.isEmpty()) {
+            formats = EnumSet.allOf(BarcodeFormat.class);
+        }
+
+        _hints = new EnumMap<>(DecodeHintType.class);
+        _hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+        _tryHarderHints = new EnumMap<>(_hints);
+        _tryHarderHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+
+        _families.clear();
+        _oneDReader.setFormats(formats, _hints);
+        if (!_oneDReader.isEmpty()) {
+            _families.add(new Family(_oneDReader, _oneDReader.getFormats()));
+        }
+        addFamily(formats, BarcodeFormat.QR_CODE, new QRCodeReader());
+        addFamily(formats, BarcodeFormat.DATA_MATRIX, new DataMatrixReader());
+        addFamily(formats, BarcodeFormat.AZTEC, new AztecReader());
+        addFamily(formats, BarcodeFormat.PDF_417, new PDF417Reader());
+        addFamily(formats, BarcodeFormat.MAXICODE, new MaxiCodeReader());
+    }
+
+    private void addFamily(Set<BarcodeFormat> formats, BarcodeFormat format, Reader reader) {
+        if (formats.contains(format)) {
+            _families.add(new Family(reader, EnumSet.of(format)));
+        }
+    }
+
+    /**
+     * @param adaptive       try readers in order of observed hits
+     * @param tryHarderAfter near-misses without a hit before a TRY_HARDER decode, 0 never tries harder
+     */
+    public synchronized void configure(boolean adaptive, int tryHarderAfter) {
+        _adaptive = adaptive;
+        _tryHarderAfter = tryHarderAfter;
+    }
+
+    public synchronized Result decodeWithState(BinaryBitmap image) throws NotFoundException {
+        boolean tryHarder = _tryHarderAfter > 0 && _nearMissRun >= _tryHarderAfter;
+        Map<DecodeHintType, Object> hints = tryHarder ? _tryHarderHints : _hints;
+        if (tryHarder) {
+            _tryHarderAttempts++;
+            _nearMissRun = 0;
+        }
+
+        List<Family> families = _families;
+        if (_adaptive) {
+            families = new ArrayList<>(_families);
+            Collections.sort(families, _byHits);
+            _oneDReader.sort(_byHits);
+        }
+
+        boolean nearMiss = false;
+        for (Family family : families) {
+            try {
+                Result result = family.reader.decode(image, hints);
+                recordHit(result.getBarcodeFormat());
+                if (tryHarder) {
+                    _tryHarderHits++;
+                }
+                return result;
+            } catch (ChecksumException | FormatException e) {
+                nearMiss = true;
+            } catch (ReaderException e) {
+                // nothing found by this reader
+            }
+        }
+
+        if (nearMiss) {
+            _nearMissCount++;
+            _nearMissRun++;
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+
+    @Override
+    public Result decode(BinaryBitmap image) throws NotFoundException {
+        return decodeWithState(image);
+    }
+
+    @Override
+    public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+        return decodeWithState(image);
+    }
+
+    @Override
+    public synchronized void reset() {
+        for (Family family : _families) {
+            family.reader.reset();
+        }
+    }
+
+    private void recordHit(BarcodeFormat format) {
+        Long hits = _formatHits.get(format);
+        _formatHits.put(format, hits == null ? 1 : hits + 1);
+        _nearMissRun = 0;
+    }
+
+    private long getHits(Set<BarcodeFormat> formats) {
+        long hits = 0;
+        for (BarcodeFormat format : formats) {
+            Long formatHits = _formatHits.get(format);
+            if (formatHits != null) {
+                hits += formatHits;
+            }
+        }
+        return hits;
+    }
+
+    public synchronized Map<BarcodeFormat, Long> getFormatHits() {
+        return new EnumMap<>(_formatHits);
+    }
+
+    public synchronized long getNearMissCount() {
+        return _nearMissCount;
+    }
+
+    public synchronized long getTryHarderAttempts() {
+        return _tryHarderAttempts;
+    }
+
+    public synchronized long getTryHarderHits() {
+        return _tryHarderHits;
+    }
+
+    private static class Family {
+        final Reader reader;
+        final Set<BarcodeFormat> formats;
+
+        Family(Reader reader, Set<BarcodeFormat> formats) {
+            this.reader = reader;
+            this.formats = formats;
+        }
+    }
+
+    /**
+     * The 1D pass: like MultiFormatOneDReader every sampled row is binarized once and handed to
+     * each 1D reader, but in an order that can change.
+     */
+    private static class OrderedOneDReader extends OneDReader {
+        private final List<Family> _readers = new ArrayList<>();
+        private final EnumSet<BarcodeFormat> _formats = EnumSet.noneOf(BarcodeFormat.class);
+
+        void setFormats(Set<BarcodeFormat> formats, Map<DecodeHintType, ?> hints) {
+            _readers.clear();
+            _formats.clear();
+            EnumSet<BarcodeFormat> upcEanFormats = EnumSet.noneOf(BarcodeFormat.class);
+            for (BarcodeFormat format : EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.UPC_A, BarcodeFormat.EAN_8, BarcodeFormat.UPC_E)) {
+                if (formats.contains(format)) {
+                    upcEanFormats.add(format);
+                }
+            }
+            if (!upcEanFormats.isEmpty()) {
+                add(new MultiFormatUPCEANReader(hints), upcEanFormats);
+            }
+            if (formats.contains(BarcodeFormat.CODE_39)) {
+                boolean useCheckDigit = hints != null && hints.get(DecodeHintType.ASSUME_CODE_39_CHECK_DIGIT) != null;
+                add(new Code39Reader(useCheckDigit), EnumSet.of(BarcodeFormat.CODE_39));
+            }
+            addIfRequested(formats, BarcodeFormat.CODE_93, new Code93Reader());
+            addIfRequested(formats, BarcodeFormat.CODE_128, new Code128Reader());
+            addIfRequested(formats, BarcodeFormat.ITF, new ITFReader());
+            addIfRequested(formats, BarcodeFormat.CODABAR, new CodaBarReader());
+            addIfRequested(formats, BarcodeFormat.RSS_14, new RSS14Reader());
+            addIfRequested(formats, BarcodeFormat.RSS_EXPANDED, new RSSExpandedReader());
+        }
+
+        private void addIfRequested(Set<BarcodeFormat> formats, BarcodeFormat format, OneDReader reader) {
+            if (formats.contains(format)) {
+                add(reader, EnumSet.of(format));
+            }
+        }
+
+        private void add(OneDReader reader, Set<BarcodeFormat> formats) {
+            _readers.add(new Family(reader, formats));
+            _formats.addAll(formats);
+        }
+
+        boolean isEmpty() {
+            return _readers.isEmpty();
+        }
+
+        Set<BarcodeFormat> getFormats() {
+            return _formats;
+        }
+
+        void sort(Comparator<Family> order) {
+            Collections.sort(_readers, order);
+        }
+
+        @Override
+        public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType, ?> hints) throws NotFoundException {
+            for (Family family : _readers) {
+                try {
+                    return ((OneDReader) family.reader).decodeRow(rowNumber, row, hints);
+                } catch (ReaderException e) {
+                    // not this format
+                }
+            }
+            throw NotFoundException.getNotFoundInstance();
+        }
+
+        @Override
+        public void reset() {
+            for (Family family : _readers) {
+                family.reader.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.lwansbrough.RCTCamera;
+
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Runs barcode decoding for a single viewfinder on its own background-priority thread.
+ *
+ * Frames are handed over through a single-slot mailbox: submitting a frame while another one is
+ * still waiting replaces (and recycles) the waiting one, so the worker always picks up the most
+ * recent preview frame and a slow decode never builds up a backlog. Frames go back to their
+ * {@link FrameSource} once decoded or dropped.
+ */
+class BarcodeDecodeEngine implements Runnable {
+    private static final String TAG = "RCTCamera";
+
+    interface Decoder {
+        /**
+         * @return false if the frame was skipped without decoding it
+         */
+        boolean decode(FrameSource.Frame frame);
+
+        /**
+         * Called on the worker thread when it exits, to free resources that worker created for
+         * decoding.
+         */
+        void release();
+    }
+
+    private final Object _lock = new Object();
+    private final Decoder _decoder;
+    private Thread _thread;
+    private boolean _running = false;
+    private FrameSource.Frame _pendingFrame = null;
+
+    private long _submittedCount = 0;
+    private long _droppedCount = 0;
+    private long _decodedCount = 0;
+    private long _gatedCount = 0;
+
+    BarcodeDecodeEngine(Decoder decoder) {
+        _decoder = decoder;
+    }
+
+    public void start() {
+        synchronized (_lock) {
+            if (_running) {
+                return;
+            }
+            _running = true;
+            _thread = new Thread(this, "RCTCameraBarcodeDecoder");
+            _thread.start();
+        }
+    }
+
+    /**
+     * Stops the worker. A waiting frame is released immediately, a frame being decoded right now is
+     * allowed to finish and the worker is waited for, so a following {@link #start()} never runs
+     * two workers over the decoder's state at once.
+     */
+    public void stop() {
+        Thread thread;
+        FrameSource.Frame pendingFrame;
+        synchronized (_lock) {
+            if (!_running) {
+                return;
+            }
+            _running = false;
+            thread = _thread;
+            _thread = null;
+            pendingFrame = _pendingFrame;
+            _pendingFrame = null;
+            _lock.notifyAll();
+        }
+        if (pendingFrame != null) {
+            pendingFrame.release();
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            join(thread);
+        }
+    }
+
+    static void join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a preview frame for decoding, replacing any frame that has not been picked up yet.
+     * The frame is released once it is decoded or dropped.
+     */
+    public void submit(FrameSource.Frame frame) {
+        FrameSource.Frame droppedFrame;
+        synchronized (_lock) {
+            if (!_running) {
+                droppedFrame = frame;
+            } else {
+                _submittedCount++;
+                droppedFrame = _pendingFrame;
+                _pendingFrame = frame;
+                _lock.notifyAll();
+            }
+            if (droppedFrame != null) {
+                _droppedCount++;
+            }
+        }
+        if (droppedFrame != null) {
+            droppedFrame.release();
+        }
+    }
+
+    public long getSubmittedCount() {
+        synchronized (_lock) {
+            return _submittedCount;
+        }
+    }
+
+    public long getDroppedCount() {
+        synchronized (_lock) {
+            return _droppedCount;
+        }
+    }
+
+    public long getDecodedCount() {
+        synchronized (_lock) {
+            return _decodedCount;
+        }
+    }
+
+    /**
+     * Frames the decoder skipped without decoding them.
+     */
+    public long getGatedCount() {
+        synchronized (_lock) {
+            return _gatedCount;
+        }
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+        while (true) {
+            FrameSource.Frame frame;
+            synchronized (_lock) {
+                while (_running && _pendingFrame == null) {
+                    try {
+                        _lock.wait();
+                    } catch (InterruptedException e) {
+                        // re-check the running flag
+                    }
+                }
+                if (!_running || _thread != Thread.currentThread()) {
+                    break;
+                }
+                frame = _pendingFrame;
+                _pendingFrame = null;
+            }
+
+            boolean decoded = true;
+            try {
+                decoded = _decoder.decode(frame);
+            } catch (Throwable t) {
+                Log.e(TAG, "barcode decode failed", t);
+            } finally {
+                frame.release();
+            }
+
+            synchronized (_lock) {
+                if (decoded) {
+                    _decodedCount++;
+                } else {
+                    _gatedCount++;
+                }
+            }
+        }
+
+        _decoder.release();
+    }
+}
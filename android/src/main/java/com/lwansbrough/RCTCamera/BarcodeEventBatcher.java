@@ -0,0 +1,78 @@
+package com.lwansbrough.RCTCamera;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+/**
+ * Coalesces the barcodes read within a time window into a single `CameraBarCodesReadAndroid`
+ * event, so overlays tracking several codes cost one bridge crossing per window instead of one per
+ * code and frame.
+ */
+class BarcodeEventBatcher implements Runnable {
+    private final Handler _handler = new Handler(Looper.getMainLooper());
+    private WritableArray _pendingCodes = null;
+    private long _batchCount = 0;
+    private long _codeCount = 0;
+
+    /**
+     * Queue a code for the current batch, opening a new batch that is flushed after `window`
+     * milliseconds if none is open.
+     */
+    public synchronized void add(WritableMap code, int window) {
+        if (_pendingCodes == null) {
+            _pendingCodes = Arguments.createArray();
+            _handler.postDelayed(this, window);
+        }
+        _pendingCodes.pushMap(code);
+        _codeCount++;
+    }
+
+    /**
+     * Flush the current batch.
+     */
+    @Override
+    public void run() {
+        WritableArray codes;
+        synchronized (this) {
+            codes = _pendingCodes;
+            _pendingCodes = null;
+            if (codes == null) {
+                return;
+            }
+            _batchCount++;
+        }
+        emit(codes);
+    }
+
+    /**
+     * Emit `count` codes as a batch of their own right away, bypassing the time window.
+     */
+    public void send(WritableArray codes, int count) {
+        synchronized (this) {
+            _batchCount++;
+            _codeCount += count;
+        }
+        emit(codes);
+    }
+
+    private void emit(WritableArray codes) {
+        ReactContext reactContext = RCTCameraModule.getReactContextSingleton();
+        WritableMap event = Arguments.createMap();
+        event.putArray("barcodes", codes);
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit("CameraBarCodesReadAndroid", event);
+    }
+
+    public synchronized long getBatchCount() {
+        return _batchCount;
+    }
+
+    public synchronized long getCodeCount() {
+        return _codeCount;
+    }
+}
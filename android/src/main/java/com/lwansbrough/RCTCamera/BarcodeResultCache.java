@@ -0,0 +1,91 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of recently reported barcodes, keyed by (format, text).
+ *
+ * A code seen again within `ttl` milliseconds of the last time it was seen is suppressed instead
+ * of being reported again; while it stays in view it can optionally be reported as a cheap
+ * heartbeat every `heartbeatInterval` milliseconds.
+ */
+class BarcodeResultCache {
+    public static final int DEFAULT_CAPACITY = 32;
+
+    public static final int EMIT = 0;
+    public static final int SUPPRESS = 1;
+    public static final int HEARTBEAT = 2;
+
+    private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > _capacity;
+        }
+    };
+    private int _capacity = DEFAULT_CAPACITY;
+    private long _ttl = 0;
+    private long _heartbeatInterval = 0;
+    private long _suppressedCount = 0;
+    private long _heartbeatCount = 0;
+
+    /**
+     * @param ttl suppression window in milliseconds, 0 disables suppression
+     * @param heartbeatInterval minimum time between heartbeats in milliseconds, 0 disables them
+     */
+    public synchronized void configure(long ttl, long heartbeatInterval, int capacity) {
+        _ttl = ttl;
+        _heartbeatInterval = heartbeatInterval;
+        _capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Records a decoded code and tells whether it should be emitted, suppressed or reported as
+     * still visible.
+     */
+    public synchronized int check(BarcodeFormat format, String text, long now) {
+        if (_ttl <= 0) {
+            return EMIT;
+        }
+
+        String key = format.name() + ':' + text;
+        Entry entry = _entries.get(key);
+        if (entry == null || now - entry.lastSeen > _ttl) {
+            _entries.put(key, new Entry(now));
+            return EMIT;
+        }
+
+        entry.lastSeen = now;
+        if (_heartbeatInterval > 0 && now - entry.lastReported >= _heartbeatInterval) {
+            entry.lastReported = now;
+            _heartbeatCount++;
+            return HEARTBEAT;
+        }
+        _suppressedCount++;
+        return SUPPRESS;
+    }
+
+    public synchronized int size() {
+        return _entries.size();
+    }
+
+    public synchronized long getSuppressedCount() {
+        return _suppressedCount;
+    }
+
+    public synchronized long getHeartbeatCount() {
+        return _heartbeatCount;
+    }
+
+    private static class Entry {
+        long lastSeen;
+        long lastReported;
+
+        Entry(long now) {
+            lastSeen = now;
+            lastReported = now;
+        }
+    }
+}
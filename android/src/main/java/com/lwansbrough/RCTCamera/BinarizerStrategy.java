@@ -0,0 +1,114 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * Chooses how frames are binarized before decoding.
+ *
+ * HybridBinarizer computes a local threshold for every 8x8 block, which copes with uneven lighting
+ * but costs much more than a single global threshold from a luminance histogram, and well-lit,
+ * high-contrast codes decode fine with the latter. Strategies:
+ *  - hybrid: local thresholds only (the historical behaviour),
+ *  - global: global histogram only,
+ *  - tiered: global histogram first, hybrid when it finds nothing,
+ *  - alternate: global histogram and hybrid on every other frame.
+ */
+class BinarizerStrategy {
+    public static final int HYBRID = 0;
+    public static final int GLOBAL = 1;
+    public static final int TIERED = 2;
+    public static final int ALTERNATE = 3;
+
+    public static final int PASS_GLOBAL = 0;
+    public static final int PASS_HYBRID = 1;
+
+    private int _strategy = HYBRID;
+    private long _frameCount = 0;
+
+    private final long[] _attempts = new long[2];
+    private final long[] _hits = new long[2];
+    private final long[] _nanos = new long[2];
+
+    /**
+     * Decodes a binarized frame, e.g. with AdaptiveBarcodeReader or ParallelBarcodeReader.
+     */
+    interface BitmapDecoder {
+        Result decode(BinaryBitmap bitmap) throws NotFoundException;
+    }
+
+    public static int parse(String strategy) {
+        if ("global".equals(strategy)) {
+            return GLOBAL;
+        } else if ("tiered".equals(strategy)) {
+            return TIERED;
+        } else if ("alternate".equals(strategy)) {
+            return ALTERNATE;
+        }
+        return HYBRID;
+    }
+
+    public synchronized void setStrategy(int strategy) {
+        _strategy = strategy;
+    }
+
+    /**
+     * Decodes the source with the reader, binarizing it as the current strategy says.
+     */
+    public Result decode(LuminanceSource source, BitmapDecoder reader) throws NotFoundException {
+        int strategy;
+        synchronized (this) {
+            strategy = _strategy;
+        }
+
+        boolean global = strategy == GLOBAL || strategy == TIERED
+                || (strategy == ALTERNATE && (_frameCount++ & 1) == 0);
+        if (global) {
+            try {
+                return decodePass(PASS_GLOBAL, new GlobalHistogramBinarizer(source), reader);
+            } catch (NotFoundException e) {
+                if (strategy != TIERED) {
+                    throw e;
+                }
+            }
+        }
+        return decodePass(PASS_HYBRID, new HybridBinarizer(source), reader);
+    }
+
+    private Result decodePass(int pass, Binarizer binarizer, BitmapDecoder reader) throws NotFoundException {
+        long start = System.nanoTime();
+        try {
+            Result result = reader.decode(new BinaryBitmap(binarizer));
+            synchronized (this) {
+                _hits[pass]++;
+            }
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                _attempts[pass]++;
+                _nanos[pass] += elapsed;
+            }
+        }
+    }
+
+    public synchronized long getAttempts(int pass) {
+        return _attempts[pass];
+    }
+
+    public synchronized long getHits(int pass) {
+        return _hits[pass];
+    }
+
+    /**
+     * Average time of a decode pass with the given binarizer, in milliseconds.
+     */
+    public synchronized double getAverageLatency(int pass) {
+        return _attempts[pass] == 0 ? 0 : _nanos[pass] / 1e6 / _attempts[pass];
+    }
+}
@@ -0,0 +1,65 @@
+package com.lwansbrough.RCTCamera;
+
+import android.hardware.Camera;
+
+/**
+ * Frames of a started Camera1 preview, delivered through buffers of a {@link PreviewBufferPool}
+ * together with the pool's frame wrapper of each buffer, so no garbage is made per frame.
+ */
+class Camera1FrameSource implements FrameSource, Camera.PreviewCallback {
+    private final Camera _camera;
+    private final int _cameraType;
+    private final PreviewBufferPool _bufferPool;
+    private volatile Listener _listener;
+
+    Camera1FrameSource(Camera camera, int cameraType, PreviewBufferPool bufferPool) {
+        _camera = camera;
+        _cameraType = cameraType;
+        _bufferPool = bufferPool;
+    }
+
+    /**
+     * Queues the pool's buffers on the camera and starts receiving previews. Preview size and format
+     * come from the cached camera parameters, so the preview must be configured already.
+     */
+    @Override
+    public void start(Listener listener) {
+        RCTCamera camera = RCTCamera.getInstance();
+        _listener = listener;
+        _bufferPool.attach(_camera, camera.getPreviewFrameWidth(_cameraType), camera.getPreviewFrameHeight(_cameraType),
+                camera.getPreviewFrameFormat(_cameraType));
+        _camera.setPreviewCallbackWithBuffer(this);
+    }
+
+    @Override
+    public void stop() {
+        _camera.setPreviewCallbackWithBuffer(null);
+        _listener = null;
+        _bufferPool.detach();
+    }
+
+    @Override
+    public void release(byte[] data) {
+        _bufferPool.release(data);
+    }
+
+    @Override
+    public void onPreviewFrame(byte[] data, Camera camera) {
+        if (data == null) {
+            return;
+        }
+
+        Listener listener = _listener;
+        if (listener == null) {
+            _bufferPool.release(data);
+            return;
+        }
+
+        RCTCamera rctCamera = RCTCamera.getInstance();
+        // zxing wants the frame upright: rotate portrait frames
+        int rotation = rctCamera.getActualDeviceOrientation() == 0 ? 90 : 0;
+        listener.onFrame(_bufferPool.obtainFrame(this, data).reset(rctCamera.getPreviewFrameWidth(_cameraType),
+                rctCamera.getPreviewFrameHeight(_cameraType), rctCamera.getPreviewFrameFormat(_cameraType),
+                System.nanoTime(), rotation));
+    }
+}
@@ -0,0 +1,218 @@
+package com.lwansbrough.RCTCamera;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Build;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs still capture processing (decode, transforms, encode, saving) on up to `parallelism`
+ * threads at once, within a memory budget.
+ *
+ * Every capture is admitted with an estimate of the memory it needs while processed, see
+ * {@link #estimateCost(int, int, int, boolean)}. A capture starts right away if a thread is free and
+ * its cost fits in what is left of the budget; a capture that does not fit at all still runs, but
+ * alone. Otherwise it waits in a FIFO queue, its JPEG pinned in memory, and once the queue holds
+ * `maxQueueDepth` captures or the budget's worth of JPEG bytes, further captures are rejected.
+ */
+public class CaptureScheduler {
+    public static final int DEFAULT_MAX_QUEUE_DEPTH = 8;
+
+    public interface Job {
+        void run();
+
+        /**
+         * Called instead of {@link #run()} when the job is not admitted.
+         */
+        void reject(String message);
+    }
+
+    private static class Entry {
+        final Job job;
+        final long cost;
+        final long jpegBytes;
+        final long enqueuedAt;
+
+        Entry(Job job, long cost, long jpegBytes) {
+            this.job = job;
+            this.cost = cost;
+            this.jpegBytes = jpegBytes;
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+
+    private final Executor _executor;
+    private final ArrayDeque<Entry> _queue = new ArrayDeque<>();
+    private int _parallelism;
+    private long _memoryBudget;
+    private int _maxQueueDepth = DEFAULT_MAX_QUEUE_DEPTH;
+
+    private int _running = 0;
+    private long _runningCost = 0;
+    private long _queuedBytes = 0;
+
+    private long _admittedCount = 0;
+    private long _rejectedCount = 0;
+    private int _maxQueueDepthSeen = 0;
+    private long _waitNanos = 0;
+    private long _maxWaitNanos = 0;
+
+    CaptureScheduler() {
+        this(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    CaptureScheduler(Executor executor) {
+        _executor = executor;
+        setParallelism(0);
+        setMemoryBudget(0);
+    }
+
+    /**
+     * @param parallelism captures processed at once, 0 for half the cores (at least one)
+     */
+    public synchronized void setParallelism(int parallelism) {
+        _parallelism = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        drain();
+    }
+
+    /**
+     * @param memoryBudget bytes the captures in progress may take, 0 for half of what the device
+     *                     grants the app for bitmaps, see {@link #getDefaultMemoryBudget()}
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        _memoryBudget = memoryBudget > 0 ? memoryBudget : getDefaultMemoryBudget();
+        drain();
+    }
+
+    /**
+     * Since Android 8 bitmap pixels live on the native heap, which the Java heap limit doesn't bound:
+     * the device's large memory class stands in for the memory the app may take. Before, pixels
+     * count against the Java heap.
+     */
+    private static long getDefaultMemoryBudget() {
+        Context context = RCTCameraModule.getReactContextSingleton();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && context != null) {
+            ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            if (activityManager != null) {
+                return activityManager.getLargeMemoryClass() * 1024L * 1024L / 2;
+            }
+        }
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    public synchronized void setMaxQueueDepth(int maxQueueDepth) {
+        _maxQueueDepth = Math.max(0, maxQueueDepth);
+    }
+
+    /**
+     * Memory a capture needs while processed: its JPEG, plus, when it gets decoded, two ARGB
+     * bitmaps of the picture size (the decoded one and the transformed one) and the encoded output.
+     */
+    public static long estimateCost(int jpegBytes, int pictureWidth, int pictureHeight, boolean decodes) {
+        if (!decodes) {
+            return jpegBytes;
+        }
+        long pixels = (long) pictureWidth * pictureHeight;
+        return 2L * jpegBytes + 2 * 4 * pixels;
+    }
+
+    public void submit(Job job, long cost, int jpegBytes) {
+        String rejection = null;
+        synchronized (this) {
+            Entry entry = new Entry(job, cost, jpegBytes);
+            if (_queue.isEmpty() && canStart(entry)) {
+                start(entry);
+            } else if (_queue.size() >= _maxQueueDepth || _queuedBytes + jpegBytes > _memoryBudget) {
+                _rejectedCount++;
+                rejection = "Capture processing queue is full (" + _queue.size() + " waiting, "
+                        + _running + " in progress).";
+            } else {
+                _queue.add(entry);
+                _queuedBytes += jpegBytes;
+                _maxQueueDepthSeen = Math.max(_maxQueueDepthSeen, _queue.size());
+            }
+        }
+        if (rejection != null) {
+            job.reject(rejection);
+        }
+    }
+
+    private boolean canStart(Entry entry) {
+        if (_running >= _parallelism) {
+            return false;
+        }
+        // an oversized capture runs on its own
+        return _running == 0 || _runningCost + entry.cost <= _memoryBudget;
+    }
+
+    private void start(final Entry entry) {
+        long wait = System.nanoTime() - entry.enqueuedAt;
+        _admittedCount++;
+        _waitNanos += wait;
+        _maxWaitNanos = Math.max(_maxWaitNanos, wait);
+        _running++;
+        _runningCost += entry.cost;
+        _executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    entry.job.run();
+                } finally {
+                    finish(entry);
+                }
+            }
+        });
+    }
+
+    private synchronized void finish(Entry entry) {
+        _running--;
+        _runningCost -= entry.cost;
+        drain();
+    }
+
+    private void drain() {
+        while (!_queue.isEmpty() && canStart(_queue.peek())) {
+            Entry entry = _queue.poll();
+            _queuedBytes -= entry.jpegBytes;
+            start(entry);
+        }
+    }
+
+    public synchronized int getParallelism() {
+        return _parallelism;
+    }
+
+    public synchronized long getMemoryBudget() {
+        return _memoryBudget;
+    }
+
+    public synchronized int getRunningCount() {
+        return _running;
+    }
+
+    public synchronized int getQueueDepth() {
+        return _queue.size();
+    }
+
+    public synchronized int getMaxQueueDepthSeen() {
+        return _maxQueueDepthSeen;
+    }
+
+    public synchronized long getRejectedCount() {
+        return _rejectedCount;
+    }
+
+    /**
+     * Average time captures waited before processing started, in milliseconds.
+     */
+    public synchronized double getAverageWait() {
+        return _admittedCount == 0 ? 0 : _waitNanos / 1e6 / _admittedCount;
+    }
+
+    public synchronized double getMaxWait() {
+        return _maxWaitNanos / 1e6;
+    }
+}
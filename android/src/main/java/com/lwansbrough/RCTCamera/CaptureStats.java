@@ -0,0 +1,52 @@
+package com.lwansbrough.RCTCamera;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Counters of still capture processing, see RCTCameraModule.getCaptureStats.
+ */
+class CaptureStats {
+    private long _processedCount = 0;
+    private long _passthroughCount = 0;
+    private long _nanos = 0;
+    private long _lastPeakBitmapBytes = 0;
+    private long _maxPeakBitmapBytes = 0;
+    private long _lastPeakNativeHeap = 0;
+    private long _maxPeakNativeHeap = 0;
+
+    public synchronized void recordImage(MutableImage image, boolean passthrough, long nanos) {
+        _processedCount++;
+        _nanos += nanos;
+        if (passthrough) {
+            _passthroughCount++;
+        }
+        _lastPeakBitmapBytes = image.getPeakBitmapBytes();
+        _maxPeakBitmapBytes = Math.max(_maxPeakBitmapBytes, _lastPeakBitmapBytes);
+        _lastPeakNativeHeap = image.getPeakNativeHeap();
+        _maxPeakNativeHeap = Math.max(_maxPeakNativeHeap, _lastPeakNativeHeap);
+    }
+
+    /**
+     * @param scheduler adds the queue counters of the scheduler running the processing
+     */
+    public synchronized WritableMap toMap(CaptureScheduler scheduler) {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("imagesProcessed", _processedCount);
+        stats.putDouble("imagesPassedThrough", _passthroughCount);
+        stats.putDouble("processingMs", _processedCount == 0 ? 0 : _nanos / 1e6 / _processedCount);
+        stats.putDouble("lastPeakBitmapBytes", _lastPeakBitmapBytes);
+        stats.putDouble("maxPeakBitmapBytes", _maxPeakBitmapBytes);
+        stats.putDouble("lastPeakNativeHeap", _lastPeakNativeHeap);
+        stats.putDouble("maxPeakNativeHeap", _maxPeakNativeHeap);
+        stats.putInt("parallelism", scheduler.getParallelism());
+        stats.putDouble("memoryBudget", scheduler.getMemoryBudget());
+        stats.putInt("inProgress", scheduler.getRunningCount());
+        stats.putInt("queueDepth", scheduler.getQueueDepth());
+        stats.putInt("maxQueueDepth", scheduler.getMaxQueueDepthSeen());
+        stats.putDouble("queueWaitMs", scheduler.getAverageWait());
+        stats.putDouble("maxQueueWaitMs", scheduler.getMaxWait());
+        stats.putDouble("capturesRejected", scheduler.getRejectedCount());
+        return stats;
+    }
+}
@@ -0,0 +1,207 @@
+package com.lwansbrough.RCTCamera;
+
+/**
+ * Reads and rewrites the EXIF orientation tag of a JPEG in place, without parsing the rest of the
+ * metadata, and composes orientations with a mirror. The pixel dimension tags can be swapped the
+ * same way, for an image that was transposed.
+ *
+ * An orientation is also described as the transform that presents the stored image upright:
+ * optionally transpose it, then flip the source x and/or y axis, see {@link #isTransposed(int)}.
+ */
+final class ExifOrientation {
+    public static final int NORMAL = 1;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_PIXEL_X_DIMENSION = 0xa002;
+    private static final int TAG_PIXEL_Y_DIMENSION = 0xa003;
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+
+    // orientation by transpose, flip x, flip y bits
+    private static final int[] ORIENTATIONS = {1, 2, 4, 3, 5, 8, 6, 7};
+
+    private ExifOrientation() {
+    }
+
+    public static boolean isTransposed(int orientation) {
+        return orientation >= 5 && orientation <= 8;
+    }
+
+    public static boolean isFlippedX(int orientation) {
+        return orientation == 2 || orientation == 3 || orientation == 7 || orientation == 8;
+    }
+
+    public static boolean isFlippedY(int orientation) {
+        return orientation == 3 || orientation == 4 || orientation == 6 || orientation == 7;
+    }
+
+    /**
+     * The orientation of the image presented upright and then mirrored left to right.
+     */
+    public static int mirrored(int orientation) {
+        boolean transposed = isTransposed(orientation);
+        boolean flipX = isFlippedX(orientation);
+        boolean flipY = isFlippedY(orientation);
+        // the mirror flips the output x axis, which is the source y axis once transposed
+        if (transposed) {
+            flipY = !flipY;
+        } else {
+            flipX = !flipX;
+        }
+        return ORIENTATIONS[(transposed ? 4 : 0) | (flipX ? 1 : 0) | (flipY ? 2 : 0)];
+    }
+
+    /**
+     * @return the orientation tag of the JPEG's EXIF data, {@link #NORMAL} if there is none
+     */
+    public static int read(byte[] jpeg) {
+        int[] location = locate(jpeg);
+        if (location == null) {
+            return NORMAL;
+        }
+        int orientation = readShort(jpeg, location[1] + 8, jpeg[location[0]] == 'I');
+        return orientation >= 1 && orientation <= 8 ? orientation : NORMAL;
+    }
+
+    /**
+     * Overwrites the orientation tag in place.
+     *
+     * @return false if the JPEG carries no orientation tag to overwrite
+     */
+    public static boolean write(byte[] jpeg, int orientation) {
+        int[] location = locate(jpeg);
+        if (location == null) {
+            return false;
+        }
+        boolean littleEndian = jpeg[location[0]] == 'I';
+        int value = location[1] + 8;
+        jpeg[value] = (byte) (littleEndian ? orientation : orientation >> 8);
+        jpeg[value + 1] = (byte) (littleEndian ? orientation >> 8 : orientation);
+        return true;
+    }
+
+    /**
+     * Swaps the PixelXDimension and PixelYDimension tags in place, for an image whose width and
+     * height were swapped.
+     *
+     * @return false if the JPEG does not carry both tags
+     */
+    public static boolean swapPixelDimensions(byte[] jpeg) {
+        int[] tiff = locateTiff(jpeg);
+        if (tiff == null) {
+            return false;
+        }
+        boolean littleEndian = jpeg[tiff[0]] == 'I';
+        int exifIfd = findEntry(jpeg, tiff[0], tiff[1], readInt(jpeg, tiff[0] + 4, littleEndian), TAG_EXIF_IFD);
+        if (exifIfd < 0 || readShort(jpeg, exifIfd + 2, littleEndian) != TYPE_LONG) {
+            return false;
+        }
+        int exifIfdOffset = readInt(jpeg, exifIfd + 8, littleEndian);
+        int x = findEntry(jpeg, tiff[0], tiff[1], exifIfdOffset, TAG_PIXEL_X_DIMENSION);
+        int y = findEntry(jpeg, tiff[0], tiff[1], exifIfdOffset, TAG_PIXEL_Y_DIMENSION);
+        if (x < 0 || y < 0) {
+            return false;
+        }
+        // type, count and value: either tag may be a SHORT or a LONG
+        for (int i = 2; i < 12; i++) {
+            byte swap = jpeg[x + i];
+            jpeg[x + i] = jpeg[y + i];
+            jpeg[y + i] = swap;
+        }
+        return true;
+    }
+
+    /**
+     * @return {TIFF header offset, orientation entry offset}, or null
+     */
+    private static int[] locate(byte[] jpeg) {
+        int[] tiff = locateTiff(jpeg);
+        if (tiff == null) {
+            return null;
+        }
+        boolean littleEndian = jpeg[tiff[0]] == 'I';
+        int entry = findEntry(jpeg, tiff[0], tiff[1], readInt(jpeg, tiff[0] + 4, littleEndian), TAG_ORIENTATION);
+        if (entry < 0 || readShort(jpeg, entry + 2, littleEndian) != TYPE_SHORT) {
+            return null;
+        }
+        return new int[]{tiff[0], entry};
+    }
+
+    /**
+     * @return {TIFF header offset, end of the EXIF segment} of the first EXIF segment, or null
+     */
+    private static int[] locateTiff(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xff) != 0xff || (jpeg[1] & 0xff) != 0xd8) {
+            return null;
+        }
+        int pos = 2;
+        while (pos + 4 <= jpeg.length) {
+            if ((jpeg[pos] & 0xff) != 0xff) {
+                return null;
+            }
+            int marker = jpeg[pos + 1] & 0xff;
+            if (marker == 0xff) {
+                pos++;
+                continue;
+            }
+            // metadata comes before the image data
+            if (marker == 0xda || marker == 0xd9) {
+                return null;
+            }
+            int length = readShort(jpeg, pos + 2, false);
+            int segment = pos + 4;
+            if (marker == 0xe1 && length >= 8 && segment + length - 2 <= jpeg.length
+                    && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x' && jpeg[segment + 2] == 'i'
+                    && jpeg[segment + 3] == 'f' && jpeg[segment + 4] == 0 && jpeg[segment + 5] == 0) {
+                return checkTiff(jpeg, segment + 6, segment + length - 2);
+            }
+            pos = segment + length - 2;
+        }
+        return null;
+    }
+
+    private static int[] checkTiff(byte[] jpeg, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return null;
+        }
+        if (!(jpeg[tiff] == 'I' && jpeg[tiff + 1] == 'I') && !(jpeg[tiff] == 'M' && jpeg[tiff + 1] == 'M')) {
+            return null;
+        }
+        return new int[]{tiff, end};
+    }
+
+    /**
+     * @return the offset of the IFD entry for the tag, or -1
+     */
+    private static int findEntry(byte[] jpeg, int tiff, int end, int ifdOffset, int tag) {
+        boolean littleEndian = jpeg[tiff] == 'I';
+        int ifd = tiff + ifdOffset;
+        if (ifdOffset < 0 || ifd + 2 > end) {
+            return -1;
+        }
+        int count = readShort(jpeg, ifd, littleEndian);
+        for (int i = 0; i < count; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                return -1;
+            }
+            if (readShort(jpeg, entry, littleEndian) == tag) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xff;
+        int b1 = data[offset + 1] & 0xff;
+        return littleEndian ? b0 | (b1 << 8) : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+}
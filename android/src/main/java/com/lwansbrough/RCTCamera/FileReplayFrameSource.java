@@ -0,0 +1,232 @@
+package com.lwansbrough.RCTCamera;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Replays recorded preview frames at a fixed rate, so the scanning pipeline can be load-tested
+ * without a camera (and off-device: nothing here touches Android APIs).
+ *
+ * A recording is a raw file of back-to-back NV21 frames of `width * height * 3 / 2` bytes each, as
+ * `onPreviewFrame` receives them. Files are played in order, optionally looping. Like the camera,
+ * the source owns a small number of buffers: when the listener still holds all of them at the time
+ * the next frame is due, that frame is dropped and counted.
+ */
+class FileReplayFrameSource implements FrameSource, Runnable {
+    // android.graphics.ImageFormat.NV21
+    public static final int NV21 = 0x11;
+    public static final int DEFAULT_BUFFER_COUNT = 3;
+
+    private final List<File> _files;
+    private final int _width;
+    private final int _height;
+    private final int _rotation;
+    private final long _frameIntervalNanos;
+    private final boolean _loop;
+    private final int _frameSize;
+
+    private final Object _lock = new Object();
+    private final ArrayDeque<byte[]> _freeBuffers = new ArrayDeque<>();
+    private int _bufferCount;
+    private Thread _thread;
+    private volatile Listener _listener;
+    private volatile boolean _finished = false;
+
+    private long _deliveredCount = 0;
+    private long _droppedCount = 0;
+
+    /**
+     * @param fps target frame rate; 0 or less delivers frames as fast as buffers come back
+     */
+    FileReplayFrameSource(List<File> files, int width, int height, int rotation, int fps, boolean loop) {
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No recording to replay");
+        }
+        _files = files;
+        _width = width;
+        _height = height;
+        _rotation = rotation;
+        _frameIntervalNanos = fps > 0 ? 1000000000L / fps : 0;
+        _loop = loop;
+        _frameSize = width * height * 3 / 2;
+        _bufferCount = DEFAULT_BUFFER_COUNT;
+    }
+
+    public void setBufferCount(int bufferCount) {
+        synchronized (_lock) {
+            _bufferCount = Math.max(1, bufferCount);
+        }
+    }
+
+    @Override
+    public void start(Listener listener) {
+        synchronized (_lock) {
+            if (_thread != null) {
+                return;
+            }
+            _listener = listener;
+            _finished = false;
+            _freeBuffers.clear();
+            for (int i = 0; i < _bufferCount; i++) {
+                _freeBuffers.add(new byte[_frameSize]);
+            }
+            _thread = new Thread(this, "RCTCameraFrameReplay");
+            _thread.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        Thread thread;
+        synchronized (_lock) {
+            thread = _thread;
+            _thread = null;
+            _listener = null;
+            _lock.notifyAll();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void release(byte[] data) {
+        if (data == null || data.length != _frameSize) {
+            return;
+        }
+        synchronized (_lock) {
+            if (_freeBuffers.size() < _bufferCount) {
+                _freeBuffers.add(data);
+            }
+        }
+    }
+
+    /**
+     * Whether every recording was played through (never true when looping).
+     */
+    public boolean isFinished() {
+        return _finished;
+    }
+
+    public long getDeliveredCount() {
+        synchronized (_lock) {
+            return _deliveredCount;
+        }
+    }
+
+    public long getDroppedCount() {
+        synchronized (_lock) {
+            return _droppedCount;
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextFrameTime = System.nanoTime();
+        try {
+            do {
+                for (File file : _files) {
+                    InputStream input = new FileInputStream(file);
+                    try {
+                        nextFrameTime = replay(input, nextFrameTime);
+                    } finally {
+                        input.close();
+                    }
+                    if (nextFrameTime < 0) {
+                        return;
+                    }
+                }
+            } while (_loop);
+            _finished = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot replay recording", e);
+        }
+    }
+
+    /**
+     * Plays one recording, paced from `nextFrameTime`.
+     *
+     * @return when the frame after the recording is due, or -1 once the source was stopped
+     */
+    private long replay(InputStream input, long nextFrameTime) throws IOException {
+        // frames read while no buffer was free still advance the clock
+        byte[] scratch = null;
+        while (true) {
+            byte[] buffer;
+            synchronized (_lock) {
+                if (_thread != Thread.currentThread()) {
+                    return -1;
+                }
+                buffer = _freeBuffers.poll();
+            }
+
+            boolean dropped = buffer == null;
+            if (dropped) {
+                if (scratch == null) {
+                    scratch = new byte[_frameSize];
+                }
+                buffer = scratch;
+            }
+            try {
+                readFully(input, buffer);
+            } catch (EOFException e) {
+                if (!dropped) {
+                    release(buffer);
+                }
+                return nextFrameTime;
+            }
+
+            long delay = nextFrameTime - System.nanoTime();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+                } catch (InterruptedException e) {
+                    if (!dropped) {
+                        release(buffer);
+                    }
+                    return -1;
+                }
+            }
+            nextFrameTime = Math.max(nextFrameTime + _frameIntervalNanos, System.nanoTime() - _frameIntervalNanos);
+
+            Listener listener = _listener;
+            synchronized (_lock) {
+                if (dropped || listener == null) {
+                    _droppedCount++;
+                } else {
+                    _deliveredCount++;
+                }
+            }
+            if (dropped) {
+                continue;
+            }
+            if (listener == null) {
+                release(buffer);
+                return -1;
+            }
+            listener.onFrame(new Frame(this, buffer, _width, _height, NV21, System.nanoTime(), _rotation));
+        }
+    }
+
+    private void readFully(InputStream input, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = input.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                // a truncated trailing frame is ignored
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.lwansbrough.RCTCamera;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A native consumer of preview frames, next to the barcode scanner: luminance statistics, document
+ * edge detection, sampling uploads and the like. Register it with
+ * `RCTCamera.getInstance().getFrameProcessors()`.
+ *
+ * Every processor runs on its own background thread and sees the same pooled preview buffer as the
+ * scanner, read-only and without copying. A processor that is still busy when a newer frame arrives
+ * gets the newer one; frames in between are dropped for it.
+ */
+public interface FrameProcessor {
+    /**
+     * Name the processor is reported under in the scanner statistics.
+     */
+    String getName();
+
+    /**
+     * Frames per second the processor wants at most; 0 for every frame it keeps up with.
+     */
+    float getTargetRate();
+
+    /**
+     * Widest frame the processor wants to look at, 0 for full resolution, see
+     * {@link FrameView#getSampleStep()}.
+     */
+    int getTargetWidth();
+
+    /**
+     * Called on the processor's thread. The view and its buffer are only valid during the call.
+     */
+    void process(FrameView frame);
+
+    /**
+     * Read-only view of a preview frame.
+     */
+    final class FrameView {
+        private final FrameSource.Frame _frame;
+        private final int _sampleStep;
+
+        FrameView(FrameSource.Frame frame, int targetWidth) {
+            _frame = frame;
+            int sampleStep = 1;
+            while (targetWidth > 0 && frame.width / (sampleStep * 2) >= targetWidth) {
+                sampleStep *= 2;
+            }
+            _sampleStep = sampleStep;
+        }
+
+        /**
+         * The frame's bytes, in {@link #getFormat()} layout (NV21: `width * height` luminance bytes
+         * followed by interleaved chroma).
+         */
+        public ByteBuffer getData() {
+            return ByteBuffer.wrap(_frame.data).asReadOnlyBuffer();
+        }
+
+        public int getWidth() {
+            return _frame.width;
+        }
+
+        public int getHeight() {
+            return _frame.height;
+        }
+
+        public int getFormat() {
+            return _frame.format;
+        }
+
+        /**
+         * System.nanoTime() based capture time.
+         */
+        public long getTimestamp() {
+            return _frame.timestamp;
+        }
+
+        /**
+         * Clockwise rotation presenting the frame upright.
+         */
+        public int getRotation() {
+            return _frame.rotation;
+        }
+
+        /**
+         * Power of two pixel step that brings the frame down to the processor's target width:
+         * reading every `step`-th pixel of every `step`-th row gives the frame at about that
+         * resolution.
+         */
+        public int getSampleStep() {
+            return _sampleStep;
+        }
+    }
+}
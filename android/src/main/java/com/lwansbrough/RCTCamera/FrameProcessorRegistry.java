@@ -0,0 +1,198 @@
+package com.lwansbrough.RCTCamera;
+
+import android.os.Process;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fans each preview frame out to the registered {@link FrameProcessor}s.
+ *
+ * Every processor gets a worker thread with a single-slot mailbox, like the barcode decode engine:
+ * frames arriving faster than its target rate are skipped, and a frame still waiting when a newer
+ * one is accepted is dropped. Processors share the frame's buffer, which holds a reference per
+ * waiting or running processor and goes back to its source when the last one releases it.
+ */
+public class FrameProcessorRegistry {
+    private static final String TAG = "RCTCamera";
+
+    private final CopyOnWriteArrayList<Slot> _slots = new CopyOnWriteArrayList<>();
+
+    public void register(FrameProcessor processor) {
+        Slot slot = new Slot(processor);
+        _slots.add(slot);
+        slot.start();
+    }
+
+    /**
+     * Stops the processor's worker; a frame it is processing right now is allowed to finish and is
+     * waited for, unless called from the processor itself.
+     */
+    public void unregister(FrameProcessor processor) {
+        for (Slot slot : _slots) {
+            if (slot.processor == processor) {
+                _slots.remove(slot);
+                slot.stop();
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return _slots.isEmpty();
+    }
+
+    /**
+     * Offer a frame to every processor. The caller keeps its own reference to the frame.
+     */
+    public void dispatch(FrameSource.Frame frame) {
+        for (Slot slot : _slots) {
+            slot.offer(frame);
+        }
+    }
+
+    /**
+     * Per processor counters, see RCTCameraViewFinder.getBarCodeScannerStats.
+     */
+    public WritableArray getStats() {
+        WritableArray stats = Arguments.createArray();
+        for (Slot slot : _slots) {
+            stats.pushMap(slot.getStats());
+        }
+        return stats;
+    }
+
+    private static class Slot implements Runnable {
+        final FrameProcessor processor;
+
+        private final Object _lock = new Object();
+        private Thread _thread;
+        private boolean _running = false;
+        private FrameSource.Frame _pendingFrame = null;
+        private long _lastAccepted = 0;
+
+        private long _offeredCount = 0;
+        private long _skippedCount = 0;
+        private long _droppedCount = 0;
+        private long _processedCount = 0;
+        private long _failedCount = 0;
+        private long _nanos = 0;
+
+        Slot(FrameProcessor processor) {
+            this.processor = processor;
+        }
+
+        void start() {
+            synchronized (_lock) {
+                _running = true;
+                _thread = new Thread(this, "RCTCameraFrameProcessor-" + processor.getName());
+                _thread.start();
+            }
+        }
+
+        void stop() {
+            Thread thread;
+            FrameSource.Frame pendingFrame;
+            synchronized (_lock) {
+                _running = false;
+                thread = _thread;
+                _thread = null;
+                pendingFrame = _pendingFrame;
+                _pendingFrame = null;
+                _lock.notifyAll();
+            }
+            if (pendingFrame != null) {
+                pendingFrame.release();
+            }
+            if (thread != null && thread != Thread.currentThread()) {
+                BarcodeDecodeEngine.join(thread);
+            }
+        }
+
+        void offer(FrameSource.Frame frame) {
+            float targetRate = processor.getTargetRate();
+            FrameSource.Frame droppedFrame;
+            synchronized (_lock) {
+                if (!_running) {
+                    return;
+                }
+                _offeredCount++;
+                if (targetRate > 0 && _lastAccepted != 0 && frame.timestamp - _lastAccepted < 1e9 / targetRate) {
+                    _skippedCount++;
+                    return;
+                }
+                _lastAccepted = frame.timestamp;
+                frame.retain();
+                droppedFrame = _pendingFrame;
+                _pendingFrame = frame;
+                if (droppedFrame != null) {
+                    _droppedCount++;
+                }
+                _lock.notifyAll();
+            }
+            if (droppedFrame != null) {
+                droppedFrame.release();
+            }
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+            while (true) {
+                FrameSource.Frame frame;
+                synchronized (_lock) {
+                    while (_running && _pendingFrame == null) {
+                        try {
+                            _lock.wait();
+                        } catch (InterruptedException e) {
+                            // re-check the running flag
+                        }
+                    }
+                    if (!_running || _thread != Thread.currentThread()) {
+                        break;
+                    }
+                    frame = _pendingFrame;
+                    _pendingFrame = null;
+                }
+
+                long start = System.nanoTime();
+                boolean failed = false;
+                try {
+                    processor.process(new FrameProcessor.FrameView(frame, processor.getTargetWidth()));
+                } catch (Throwable t) {
+                    failed = true;
+                    Log.e(TAG, "frame processor " + processor.getName() + " failed", t);
+                } finally {
+                    frame.release();
+                }
+
+                long elapsed = System.nanoTime() - start;
+                synchronized (_lock) {
+                    _processedCount++;
+                    _nanos += elapsed;
+                    if (failed) {
+                        _failedCount++;
+                    }
+                }
+            }
+        }
+
+        WritableMap getStats() {
+            WritableMap stats = Arguments.createMap();
+            synchronized (_lock) {
+                stats.putString("name", processor.getName());
+                stats.putDouble("framesOffered", _offeredCount);
+                stats.putDouble("framesSkipped", _skippedCount);
+                stats.putDouble("framesDropped", _droppedCount);
+                stats.putDouble("framesProcessed", _processedCount);
+                stats.putDouble("failures", _failedCount);
+                stats.putDouble("latencyMs", _processedCount == 0 ? 0 : _nanos / 1e6 / _processedCount);
+            }
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.lwansbrough.RCTCamera;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Something that delivers preview frames to the scanning pipeline: the camera, or a recording
+ * replayed for load testing.
+ *
+ * A source owns the buffers of the frames it delivers. A listener that is done with a frame hands it
+ * back through {@link Frame#release()} so the buffer can be reused for a later frame. Frames shared
+ * between several consumers are reference counted: each extra consumer calls {@link Frame#retain()}
+ * and the buffer goes back once every consumer released it.
+ */
+interface FrameSource {
+    interface Listener {
+        /**
+         * Called for every frame, on a thread chosen by the source. The listener must release the
+         * frame eventually, possibly from another thread.
+         */
+        void onFrame(Frame frame);
+    }
+
+    /**
+     * A frame in one of the source's buffers. A source may keep the frame of a buffer and
+     * {@link #reset(int, int, int, long, int)} it for every frame delivered in that buffer, so the
+     * metadata is only valid until the frame is released.
+     */
+    final class Frame {
+        public final byte[] data;
+        public int width;
+        public int height;
+        // android.graphics.ImageFormat constant, NV21 for both the camera and replays
+        public int format;
+        // System.nanoTime() based, only meaningful relative to other frames of the same source
+        public long timestamp;
+        // clockwise rotation presenting the frame upright, one of 0, 90, 180, 270
+        public int rotation;
+        private final FrameSource _source;
+        private final AtomicInteger _references = new AtomicInteger(0);
+
+        Frame(FrameSource source, byte[] data) {
+            _source = source;
+            this.data = data;
+        }
+
+        Frame(FrameSource source, byte[] data, int width, int height, int format, long timestamp, int rotation) {
+            this(source, data);
+            reset(width, height, format, timestamp, rotation);
+        }
+
+        /**
+         * Describe the next frame delivered in the buffer, held by a single reference. Only valid
+         * once every reference to the previous frame was released.
+         */
+        Frame reset(int width, int height, int format, long timestamp, int rotation) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.timestamp = timestamp;
+            this.rotation = rotation;
+            _references.set(1);
+            return this;
+        }
+
+        /**
+         * Take another reference for a consumer that releases the frame on its own.
+         */
+        public void retain() {
+            _references.incrementAndGet();
+        }
+
+        /**
+         * Drop a reference, handing the buffer back to its source with the last one.
+         */
+        public void release() {
+            if (_references.decrementAndGet() == 0) {
+                _source.release(data);
+            }
+        }
+    }
+
+    void start(Listener listener);
+
+    /**
+     * Stops delivering frames. Frames still held by the listener can be released afterwards.
+     */
+    void stop();
+
+    void release(byte[] data);
+}
@@ -0,0 +1,73 @@
+package com.lwansbrough.RCTCamera;
+
+/**
+ * Schedules decode passes over the inverted luminance of a frame, for light-on-dark codes such as
+ * white-on-black QR codes on dark-mode displays:
+ *  - off: never,
+ *  - alternate: every other frame is decoded inverted instead of as-is,
+ *  - fallback: a frame is decoded inverted after the normal pass found nothing.
+ *
+ * Inverted passes are timed so their extra cost per frame can be told apart.
+ */
+class InvertedScan {
+    public static final int OFF = 0;
+    public static final int ALTERNATE = 1;
+    public static final int FALLBACK = 2;
+
+    private int _mode = OFF;
+    private long _frameCount = 0;
+
+    private long _attempts = 0;
+    private long _hits = 0;
+    private long _nanos = 0;
+
+    public static int parse(String mode) {
+        if ("alternate".equals(mode)) {
+            return ALTERNATE;
+        } else if ("fallback".equals(mode)) {
+            return FALLBACK;
+        }
+        return OFF;
+    }
+
+    public synchronized void setMode(int mode) {
+        _mode = mode;
+    }
+
+    /**
+     * Whether the next frame is to be decoded inverted right away.
+     */
+    public synchronized boolean nextFrameInverted() {
+        return _mode == ALTERNATE && (_frameCount++ & 1) == 1;
+    }
+
+    /**
+     * Whether a frame the normal pass missed gets an inverted pass.
+     */
+    public synchronized boolean retryInverted() {
+        return _mode == FALLBACK;
+    }
+
+    public synchronized void record(long nanos, boolean hit) {
+        _attempts++;
+        _nanos += nanos;
+        if (hit) {
+            _hits++;
+        }
+    }
+
+    public synchronized long getAttempts() {
+        return _attempts;
+    }
+
+    public synchronized long getHits() {
+        return _hits;
+    }
+
+    /**
+     * Average time of an inverted pass, in milliseconds.
+     */
+    public synchronized double getAverageLatency() {
+        return _attempts == 0 ? 0 : _nanos / 1e6 / _attempts;
+    }
+}
@@ -0,0 +1,807 @@
+package com.lwansbrough.RCTCamera;
+
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rotates and flips baseline JPEGs without decoding them to pixels, like jpegtran: the Huffman
+ * coded DCT coefficients are decoded, each 8x8 block is moved to its new position and its
+ * coefficients transposed and sign-flipped, and the result is Huffman coded again (with tables
+ * optimized for the new data). Quality does not change, and it costs a fraction of a full
+ * decode, rotate and re-encode.
+ *
+ * Only single-scan baseline Huffman JPEGs, which is what camera HALs produce, are handled, and
+ * flipping an axis requires the image size along it to be a multiple of the MCU size (flipped
+ * partial blocks would end up on the wrong edge). {@link #transform(byte[], int)} returns null for
+ * everything else so the caller can fall back, and also when the platform decoder does not read
+ * the output back with the expected size.
+ */
+final class LosslessJpegTransform {
+    // natural (row-major) index of each zigzag position
+    private static final int[] ZIGZAG = {
+            0, 1, 8, 16, 9, 2, 3, 10,
+            17, 24, 32, 25, 18, 11, 4, 5,
+            12, 19, 26, 33, 40, 48, 41, 34,
+            27, 20, 13, 6, 7, 14, 21, 28,
+            35, 42, 49, 56, 57, 50, 43, 36,
+            29, 22, 15, 23, 30, 37, 44, 51,
+            58, 59, 52, 45, 38, 31, 39, 46,
+            53, 60, 61, 54, 47, 55, 62, 63
+    };
+
+    private LosslessJpegTransform() {
+    }
+
+    /**
+     * Returns the JPEG presented upright for the given EXIF orientation, with its orientation tag
+     * reset to normal, or null if it cannot be transformed losslessly.
+     */
+    public static byte[] transform(byte[] jpeg, int orientation) {
+        try {
+            Image image = Image.parse(jpeg);
+            if (image == null || !image.canTransform(orientation)) {
+                return null;
+            }
+            byte[] result = image.write(orientation);
+            boolean transpose = ExifOrientation.isTransposed(orientation);
+            if (!hasSize(result, transpose ? image.height : image.width, transpose ? image.width : image.height)) {
+                return null;
+            }
+            ExifOrientation.write(result, ExifOrientation.NORMAL);
+            if (transpose) {
+                ExifOrientation.swapPixelDimensions(result);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            // corrupt or unexpected data
+            return null;
+        }
+    }
+
+    /**
+     * Whether the platform decoder reads the JPEG's header with the given size.
+     */
+    private static boolean hasSize(byte[] jpeg, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        return options.outWidth == width && options.outHeight == height;
+    }
+
+    private static class Component {
+        int id;
+        int h;
+        int v;
+        int quantTable;
+        int dcTable;
+        int acTable;
+        // coefficient blocks in natural order, blocksWide * blocksHigh * 64
+        short[] coefficients;
+        int blocksWide;
+        int blocksHigh;
+    }
+
+    private static class Image {
+        final List<byte[]> metadataSegments = new ArrayList<>();
+        final int[][] quantTables = new int[4][];
+        final int[] quantPrecision = new int[4];
+        final HuffmanDecoder[] dcTables = new HuffmanDecoder[4];
+        final HuffmanDecoder[] acTables = new HuffmanDecoder[4];
+        int frameMarker;
+        int width;
+        int height;
+        Component[] components;
+        int maxH = 1;
+        int maxV = 1;
+        int restartInterval = 0;
+
+        static Image parse(byte[] jpeg) {
+            if ((jpeg[0] & 0xff) != 0xff || (jpeg[1] & 0xff) != 0xd8) {
+                return null;
+            }
+            Image image = new Image();
+            int pos = 2;
+            while (true) {
+                if ((jpeg[pos] & 0xff) != 0xff) {
+                    return null;
+                }
+                int marker = jpeg[pos + 1] & 0xff;
+                if (marker == 0xff) {
+                    pos++;
+                    continue;
+                }
+                int length = ((jpeg[pos + 2] & 0xff) << 8) | (jpeg[pos + 3] & 0xff);
+                int segment = pos + 4;
+                int end = pos + 2 + length;
+                if ((marker >= 0xe0 && marker <= 0xef) || marker == 0xfe) {
+                    byte[] copy = new byte[length + 2];
+                    System.arraycopy(jpeg, pos, copy, 0, copy.length);
+                    image.metadataSegments.add(copy);
+                } else if (marker == 0xdb) {
+                    image.readQuantTables(jpeg, segment, end);
+                } else if (marker == 0xc4) {
+                    image.readHuffmanTables(jpeg, segment, end);
+                } else if (marker == 0xc0 || marker == 0xc1) {
+                    if (!image.readFrame(jpeg, segment, marker)) {
+                        return null;
+                    }
+                } else if (marker == 0xdd) {
+                    image.restartInterval = ((jpeg[segment] & 0xff) << 8) | (jpeg[segment + 1] & 0xff);
+                } else if (marker == 0xda) {
+                    if (image.components == null || !image.readScan(jpeg, segment, end)) {
+                        return null;
+                    }
+                    return image;
+                } else if ((marker >= 0xc2 && marker <= 0xcf) || marker == 0xd9) {
+                    // progressive, lossless, arithmetic coded, or no image at all
+                    return null;
+                }
+                pos = end;
+            }
+        }
+
+        void readQuantTables(byte[] jpeg, int pos, int end) {
+            while (pos < end) {
+                int precision = (jpeg[pos] & 0xff) >> 4;
+                int id = jpeg[pos] & 0x0f;
+                pos++;
+                int[] table = new int[64];
+                for (int i = 0; i < 64; i++) {
+                    if (precision == 0) {
+                        table[i] = jpeg[pos++] & 0xff;
+                    } else {
+                        table[i] = ((jpeg[pos] & 0xff) << 8) | (jpeg[pos + 1] & 0xff);
+                        pos += 2;
+                    }
+                }
+                quantTables[id] = table;
+                quantPrecision[id] = precision;
+            }
+        }
+
+        void readHuffmanTables(byte[] jpeg, int pos, int end) {
+            while (pos < end) {
+                int tableClass = (jpeg[pos] & 0xff) >> 4;
+                int id = jpeg[pos] & 0x0f;
+                pos++;
+                int[] counts = new int[17];
+                int total = 0;
+                for (int i = 1; i <= 16; i++) {
+                    counts[i] = jpeg[pos++] & 0xff;
+                    total += counts[i];
+                }
+                int[] symbols = new int[total];
+                for (int i = 0; i < total; i++) {
+                    symbols[i] = jpeg[pos++] & 0xff;
+                }
+                HuffmanDecoder decoder = new HuffmanDecoder(counts, symbols);
+                if (tableClass == 0) {
+                    dcTables[id] = decoder;
+                } else {
+                    acTables[id] = decoder;
+                }
+            }
+        }
+
+        boolean readFrame(byte[] jpeg, int pos, int marker) {
+            if ((jpeg[pos] & 0xff) != 8) {
+                return false;
+            }
+            frameMarker = marker;
+            height = ((jpeg[pos + 1] & 0xff) << 8) | (jpeg[pos + 2] & 0xff);
+            width = ((jpeg[pos + 3] & 0xff) << 8) | (jpeg[pos + 4] & 0xff);
+            int count = jpeg[pos + 5] & 0xff;
+            if (height == 0 || width == 0 || count == 0) {
+                return false;
+            }
+            components = new Component[count];
+            pos += 6;
+            for (int i = 0; i < count; i++) {
+                Component component = new Component();
+                component.id = jpeg[pos] & 0xff;
+                // a single component is never interleaved, whatever its sampling factors say
+                component.h = count == 1 ? 1 : (jpeg[pos + 1] & 0xff) >> 4;
+                component.v = count == 1 ? 1 : jpeg[pos + 1] & 0x0f;
+                component.quantTable = jpeg[pos + 2] & 0xff;
+                maxH = Math.max(maxH, component.h);
+                maxV = Math.max(maxV, component.v);
+                components[i] = component;
+                pos += 3;
+            }
+            return true;
+        }
+
+        int mcusWide() {
+            return (width + 8 * maxH - 1) / (8 * maxH);
+        }
+
+        int mcusHigh() {
+            return (height + 8 * maxV - 1) / (8 * maxV);
+        }
+
+        boolean readScan(byte[] jpeg, int pos, int end) {
+            int count = jpeg[pos] & 0xff;
+            if (count != components.length) {
+                // one scan per component or the like: not what a camera writes
+                return false;
+            }
+            pos++;
+            Component[] scanComponents = new Component[count];
+            for (int i = 0; i < count; i++) {
+                int id = jpeg[pos] & 0xff;
+                Component component = null;
+                for (Component candidate : components) {
+                    if (candidate.id == id) {
+                        component = candidate;
+                    }
+                }
+                if (component == null) {
+                    return false;
+                }
+                component.dcTable = (jpeg[pos + 1] & 0xff) >> 4;
+                component.acTable = jpeg[pos + 1] & 0x0f;
+                if (dcTables[component.dcTable] == null || acTables[component.acTable] == null
+                        || quantTables[component.quantTable] == null) {
+                    return false;
+                }
+                scanComponents[i] = component;
+                pos += 2;
+            }
+            if ((jpeg[pos] & 0xff) != 0 || (jpeg[pos + 1] & 0xff) != 63 || (jpeg[pos + 2] & 0xff) != 0) {
+                return false;
+            }
+            components = scanComponents;
+
+            int mcusWide = mcusWide();
+            int mcusHigh = mcusHigh();
+            for (Component component : components) {
+                component.blocksWide = mcusWide * component.h;
+                component.blocksHigh = mcusHigh * component.v;
+                component.coefficients = new short[component.blocksWide * component.blocksHigh * 64];
+            }
+
+            BitReader reader = new BitReader(jpeg, end);
+            int[] predictions = new int[components.length];
+            int mcuCount = mcusWide * mcusHigh;
+            for (int mcu = 0; mcu < mcuCount; mcu++) {
+                if (restartInterval > 0 && mcu > 0 && mcu % restartInterval == 0) {
+                    reader.restart();
+                    for (int i = 0; i < predictions.length; i++) {
+                        predictions[i] = 0;
+                    }
+                }
+                int mcuX = mcu % mcusWide;
+                int mcuY = mcu / mcusWide;
+                for (int c = 0; c < components.length; c++) {
+                    Component component = components[c];
+                    for (int y = 0; y < component.v; y++) {
+                        for (int x = 0; x < component.h; x++) {
+                            int block = (mcuY * component.v + y) * component.blocksWide + mcuX * component.h + x;
+                            predictions[c] = decodeBlock(reader, component, block * 64, predictions[c]);
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        int decodeBlock(BitReader reader, Component component, int offset, int prediction) {
+            short[] coefficients = component.coefficients;
+            int size = dcTables[component.dcTable].decode(reader);
+            int dc = prediction + (size == 0 ? 0 : extend(reader.receive(size), size));
+            coefficients[offset] = (short) dc;
+
+            HuffmanDecoder ac = acTables[component.acTable];
+            for (int k = 1; k < 64; k++) {
+                int symbol = ac.decode(reader);
+                int run = symbol >> 4;
+                size = symbol & 0x0f;
+                if (size == 0) {
+                    if (run != 15) {
+                        break;
+                    }
+                    k += 15;
+                    continue;
+                }
+                k += run;
+                if (k > 63) {
+                    throw new IllegalStateException("coefficient out of block");
+                }
+                coefficients[offset + ZIGZAG[k]] = (short) extend(reader.receive(size), size);
+            }
+            return dc;
+        }
+
+        /**
+         * Whether every flipped axis is a whole number of MCUs.
+         */
+        boolean canTransform(int orientation) {
+            return (!ExifOrientation.isFlippedX(orientation) || width % (8 * maxH) == 0)
+                    && (!ExifOrientation.isFlippedY(orientation) || height % (8 * maxV) == 0);
+        }
+
+        byte[] write(int orientation) {
+            boolean transpose = ExifOrientation.isTransposed(orientation);
+            boolean flipX = ExifOrientation.isFlippedX(orientation);
+            boolean flipY = ExifOrientation.isFlippedY(orientation);
+
+            // where each output coefficient comes from, and its sign
+            int[] source = new int[64];
+            int[] sign = new int[64];
+            for (int v = 0; v < 8; v++) {
+                for (int u = 0; u < 8; u++) {
+                    int sourceU = transpose ? v : u;
+                    int sourceV = transpose ? u : v;
+                    source[v * 8 + u] = sourceV * 8 + sourceU;
+                    boolean negate = (flipX && (sourceU & 1) == 1) ^ (flipY && (sourceV & 1) == 1);
+                    sign[v * 8 + u] = negate ? -1 : 1;
+                }
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(estimateSize());
+            out.write(0xff);
+            out.write(0xd8);
+            for (byte[] segment : metadataSegments) {
+                out.write(segment, 0, segment.length);
+            }
+            writeQuantTables(out, transpose);
+            writeFrame(out, transpose);
+
+            // first pass gathers symbol statistics for optimal tables, the second one writes
+            HuffmanEncoder[] dc = {new HuffmanEncoder(), new HuffmanEncoder()};
+            HuffmanEncoder[] ac = {new HuffmanEncoder(), new HuffmanEncoder()};
+            encodeScan(null, dc, ac, transpose, flipX, flipY, source, sign);
+            for (int i = 0; i < 2; i++) {
+                dc[i].build();
+                ac[i].build();
+            }
+            writeHuffmanTables(out, dc, ac);
+            writeScanHeader(out);
+            BitWriter writer = new BitWriter(out);
+            encodeScan(writer, dc, ac, transpose, flipX, flipY, source, sign);
+            writer.flush();
+
+            out.write(0xff);
+            out.write(0xd9);
+            return out.toByteArray();
+        }
+
+        int estimateSize() {
+            int size = 0;
+            for (Component component : components) {
+                size += component.blocksWide * component.blocksHigh * 8;
+            }
+            return size;
+        }
+
+        void encodeScan(BitWriter writer, HuffmanEncoder[] dc, HuffmanEncoder[] ac, boolean transpose,
+                        boolean flipX, boolean flipY, int[] source, int[] sign) {
+            int outMcusWide = transpose ? mcusHigh() : mcusWide();
+            int outMcusHigh = transpose ? mcusWide() : mcusHigh();
+            int[] block = new int[64];
+            int[] predictions = new int[components.length];
+            for (int mcuY = 0; mcuY < outMcusHigh; mcuY++) {
+                for (int mcuX = 0; mcuX < outMcusWide; mcuX++) {
+                    for (int c = 0; c < components.length; c++) {
+                        Component component = components[c];
+                        int outH = transpose ? component.v : component.h;
+                        int outV = transpose ? component.h : component.v;
+                        int table = c == 0 ? 0 : 1;
+                        for (int y = 0; y < outV; y++) {
+                            for (int x = 0; x < outH; x++) {
+                                int outX = mcuX * outH + x;
+                                int outY = mcuY * outV + y;
+                                int blockX = transpose ? outY : outX;
+                                int blockY = transpose ? outX : outY;
+                                if (flipX) {
+                                    blockX = component.blocksWide - 1 - blockX;
+                                }
+                                if (flipY) {
+                                    blockY = component.blocksHigh - 1 - blockY;
+                                }
+                                int offset = (blockY * component.blocksWide + blockX) * 64;
+                                for (int i = 0; i < 64; i++) {
+                                    block[i] = component.coefficients[offset + source[i]] * sign[i];
+                                }
+                                predictions[c] = encodeBlock(writer, dc[table], ac[table], block, predictions[c]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Codes a block, or only counts its symbols without a writer.
+         */
+        static int encodeBlock(BitWriter writer, HuffmanEncoder dc, HuffmanEncoder ac, int[] block, int prediction) {
+            int diff = block[0] - prediction;
+            int size = bitLength(diff);
+            dc.emit(writer, size);
+            if (writer != null && size > 0) {
+                writer.write(diff < 0 ? diff - 1 : diff, size);
+            }
+
+            int run = 0;
+            for (int k = 1; k < 64; k++) {
+                int value = block[ZIGZAG[k]];
+                if (value == 0) {
+                    run++;
+                    continue;
+                }
+                while (run > 15) {
+                    ac.emit(writer, 0xf0);
+                    run -= 16;
+                }
+                size = bitLength(value);
+                ac.emit(writer, (run << 4) | size);
+                if (writer != null) {
+                    writer.write(value < 0 ? value - 1 : value, size);
+                }
+                run = 0;
+            }
+            if (run > 0) {
+                ac.emit(writer, 0x00);
+            }
+            return block[0];
+        }
+
+        void writeQuantTables(ByteArrayOutputStream out, boolean transpose) {
+            for (int id = 0; id < 4; id++) {
+                int[] table = quantTables[id];
+                if (table == null) {
+                    continue;
+                }
+                int precision = quantPrecision[id];
+                writeMarker(out, 0xdb, 1 + 64 * (precision + 1));
+                out.write((precision << 4) | id);
+                for (int k = 0; k < 64; k++) {
+                    int value = table[k];
+                    if (transpose) {
+                        // the value at the transposed natural position, in zigzag order again
+                        int natural = ZIGZAG[k];
+                        value = table[zigzagIndex((natural % 8) * 8 + natural / 8)];
+                    }
+                    if (precision != 0) {
+                        out.write(value >> 8);
+                    }
+                    out.write(value);
+                }
+            }
+        }
+
+        void writeFrame(ByteArrayOutputStream out, boolean transpose) {
+            writeMarker(out, frameMarker, 6 + 3 * components.length);
+            int outWidth = transpose ? height : width;
+            int outHeight = transpose ? width : height;
+            out.write(8);
+            out.write(outHeight >> 8);
+            out.write(outHeight);
+            out.write(outWidth >> 8);
+            out.write(outWidth);
+            out.write(components.length);
+            for (Component component : components) {
+                out.write(component.id);
+                out.write(transpose ? (component.v << 4) | component.h : (component.h << 4) | component.v);
+                out.write(component.quantTable);
+            }
+        }
+
+        void writeHuffmanTables(ByteArrayOutputStream out, HuffmanEncoder[] dc, HuffmanEncoder[] ac) {
+            int tables = components.length == 1 ? 1 : 2;
+            for (int i = 0; i < tables; i++) {
+                dc[i].writeTable(out, i);
+                ac[i].writeTable(out, 0x10 | i);
+            }
+        }
+
+        void writeScanHeader(ByteArrayOutputStream out) {
+            writeMarker(out, 0xda, 4 + 2 * components.length);
+            out.write(components.length);
+            for (int c = 0; c < components.length; c++) {
+                out.write(components[c].id);
+                out.write(c == 0 ? 0x00 : 0x11);
+            }
+            out.write(0);
+            out.write(63);
+            out.write(0);
+        }
+    }
+
+    static void writeMarker(ByteArrayOutputStream out, int marker, int payloadLength) {
+        out.write(0xff);
+        out.write(marker);
+        out.write((payloadLength + 2) >> 8);
+        out.write(payloadLength + 2);
+    }
+
+    static int zigzagIndex(int natural) {
+        for (int k = 0; k < 64; k++) {
+            if (ZIGZAG[k] == natural) {
+                return k;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    static int extend(int value, int size) {
+        return value < (1 << (size - 1)) ? value - (1 << size) + 1 : value;
+    }
+
+    static int bitLength(int value) {
+        return 32 - Integer.numberOfLeadingZeros(Math.abs(value));
+    }
+
+    private static class HuffmanDecoder {
+        private final int[] _maxCode = new int[18];
+        private final int[] _valueOffset = new int[17];
+        private final int[] _symbols;
+
+        HuffmanDecoder(int[] counts, int[] symbols) {
+            _symbols = symbols;
+            int code = 0;
+            int index = 0;
+            for (int length = 1; length <= 16; length++) {
+                _valueOffset[length] = index - code;
+                code += counts[length];
+                index += counts[length];
+                _maxCode[length] = counts[length] == 0 ? -1 : code - 1;
+                code <<= 1;
+            }
+            // sentinel: no code is longer than 16 bits
+            _maxCode[17] = Integer.MAX_VALUE;
+        }
+
+        int decode(BitReader reader) {
+            int code = reader.readBit();
+            int length = 1;
+            while (code > _maxCode[length]) {
+                code = (code << 1) | reader.readBit();
+                length++;
+                if (length > 16) {
+                    throw new IllegalStateException("bad Huffman code");
+                }
+            }
+            return _symbols[_valueOffset[length] + code];
+        }
+    }
+
+    private static class HuffmanEncoder {
+        private final int[] _frequencies = new int[257];
+        private final int[] _codes = new int[256];
+        private final int[] _sizes = new int[256];
+        private final int[] _counts = new int[17];
+        private int[] _symbols = new int[0];
+
+        void emit(BitWriter writer, int symbol) {
+            if (writer == null) {
+                _frequencies[symbol]++;
+            } else {
+                writer.write(_codes[symbol], _sizes[symbol]);
+            }
+        }
+
+        /**
+         * Builds length-limited optimal codes from the gathered frequencies, per JPEG Annex K.2.
+         */
+        void build() {
+            boolean used = false;
+            for (int frequency : _frequencies) {
+                used |= frequency > 0;
+            }
+            if (!used) {
+                return;
+            }
+            int[] frequencies = _frequencies.clone();
+            int[] codeSizes = new int[257];
+            int[] others = new int[257];
+            for (int i = 0; i < 257; i++) {
+                others[i] = -1;
+            }
+            // reserve one code point so no real code is all ones
+            frequencies[256] = 1;
+
+            while (true) {
+                int c1 = -1;
+                long smallest = Long.MAX_VALUE;
+                for (int i = 0; i < 257; i++) {
+                    if (frequencies[i] > 0 && frequencies[i] <= smallest) {
+                        smallest = frequencies[i];
+                        c1 = i;
+                    }
+                }
+                int c2 = -1;
+                smallest = Long.MAX_VALUE;
+                for (int i = 0; i < 257; i++) {
+                    if (frequencies[i] > 0 && frequencies[i] <= smallest && i != c1) {
+                        smallest = frequencies[i];
+                        c2 = i;
+                    }
+                }
+                if (c2 < 0) {
+                    break;
+                }
+
+                frequencies[c1] += frequencies[c2];
+                frequencies[c2] = 0;
+                codeSizes[c1]++;
+                while (others[c1] >= 0) {
+                    c1 = others[c1];
+                    codeSizes[c1]++;
+                }
+                others[c1] = c2;
+                codeSizes[c2]++;
+                while (others[c2] >= 0) {
+                    c2 = others[c2];
+                    codeSizes[c2]++;
+                }
+            }
+
+            int[] bits = new int[33];
+            for (int i = 0; i < 257; i++) {
+                if (codeSizes[i] > 0) {
+                    bits[codeSizes[i]]++;
+                }
+            }
+            for (int i = 32; i > 16; i--) {
+                while (bits[i] > 0) {
+                    int j = i - 2;
+                    while (bits[j] == 0) {
+                        j--;
+                    }
+                    bits[i] -= 2;
+                    bits[i - 1]++;
+                    bits[j + 1] += 2;
+                    bits[j]--;
+                }
+            }
+            int longest = 16;
+            while (bits[longest] == 0) {
+                longest--;
+            }
+            // drop the reserved code point
+            bits[longest]--;
+
+            int total = 0;
+            for (int i = 1; i <= 16; i++) {
+                _counts[i] = bits[i];
+                total += bits[i];
+            }
+            _symbols = new int[total];
+            int index = 0;
+            for (int size = 1; size <= 32; size++) {
+                for (int symbol = 0; symbol < 256; symbol++) {
+                    if (codeSizes[symbol] == size) {
+                        _symbols[index++] = symbol;
+                    }
+                }
+            }
+
+            int code = 0;
+            index = 0;
+            for (int size = 1; size <= 16; size++) {
+                for (int i = 0; i < _counts[size]; i++) {
+                    _codes[_symbols[index]] = code;
+                    _sizes[_symbols[index]] = size;
+                    index++;
+                    code++;
+                }
+                code <<= 1;
+            }
+        }
+
+        void writeTable(ByteArrayOutputStream out, int classAndId) {
+            writeMarker(out, 0xc4, 17 + _symbols.length);
+            out.write(classAndId);
+            for (int i = 1; i <= 16; i++) {
+                out.write(_counts[i]);
+            }
+            for (int symbol : _symbols) {
+                out.write(symbol);
+            }
+        }
+    }
+
+    private static class BitReader {
+        private final byte[] _data;
+        private final int _end;
+        private int _pos;
+        private int _bits;
+        private int _bitCount = 0;
+
+        BitReader(byte[] data, int start) {
+            _data = data;
+            _end = data.length;
+            _pos = start;
+        }
+
+        int readBit() {
+            if (_bitCount == 0) {
+                fill();
+            }
+            _bitCount--;
+            return (_bits >> _bitCount) & 1;
+        }
+
+        int receive(int size) {
+            int value = 0;
+            for (int i = 0; i < size; i++) {
+                value = (value << 1) | readBit();
+            }
+            return value;
+        }
+
+        /**
+         * Skips to the data after the next restart marker.
+         */
+        void restart() {
+            _bitCount = 0;
+            while (_pos + 1 < _end && !((_data[_pos] & 0xff) == 0xff && ((_data[_pos + 1] & 0xff) & 0xf8) == 0xd0)) {
+                _pos++;
+            }
+            _pos += 2;
+        }
+
+        private void fill() {
+            int value = 0;
+            if (_pos < _end) {
+                value = _data[_pos] & 0xff;
+                if (value == 0xff) {
+                    int next = _pos + 1 < _end ? _data[_pos + 1] & 0xff : 0xd9;
+                    if (next == 0) {
+                        // stuffed zero byte
+                        _pos += 2;
+                    } else {
+                        // a marker: feed zeros, the position stays on it for restart()
+                        value = 0;
+                    }
+                } else {
+                    _pos++;
+                }
+            }
+            _bits = value;
+            _bitCount = 8;
+        }
+    }
+
+    private static class BitWriter {
+        private final ByteArrayOutputStream _out;
+        private int _bits = 0;
+        private int _bitCount = 0;
+
+        BitWriter(ByteArrayOutputStream out) {
+            _out = out;
+        }
+
+        void write(int value, int size) {
+            for (int i = size - 1; i >= 0; i--) {
+                _bits = (_bits << 1) | ((value >> i) & 1);
+                _bitCount++;
+                if (_bitCount == 8) {
+                    writeByte();
+                }
+            }
+        }
+
+        /**
+         * Pads the last byte with ones.
+         */
+        void flush() {
+            while (_bitCount != 0) {
+                write(1, 1);
+            }
+        }
+
+        private void writeByte() {
+            _out.write(_bits);
+            if (_bits == 0xff) {
+                _out.write(0);
+            }
+            _bits = 0;
+            _bitCount = 0;
+        }
+    }
+}
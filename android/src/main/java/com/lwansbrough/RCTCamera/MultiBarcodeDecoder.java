@@ -0,0 +1,114 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds all symbols of a frame in one pass, for shelf labels and the like carrying several codes.
+ *
+ * The frame is binarized once and handed to zxing's GenericMultipleBarcodeReader, which decodes it
+ * and then recurses into the regions around every symbol found. Sub-decodes go through the caller's
+ * reader with its formats already set, and stop as soon as `maxResults` distinct codes
+ * were found.
+ */
+class MultiBarcodeDecoder {
+    public static final int DEFAULT_MAX_RESULTS = 8;
+
+    private final CappedReader _cappedReader;
+    private final GenericMultipleBarcodeReader _reader;
+
+    private long _attempts = 0;
+    private long _results = 0;
+    private long _nanos = 0;
+
+    MultiBarcodeDecoder(AdaptiveBarcodeReader delegate) {
+        _cappedReader = new CappedReader(delegate);
+        _reader = new GenericMultipleBarcodeReader(_cappedReader);
+    }
+
+    /**
+     * @throws NotFoundException if the frame holds no symbol at all
+     */
+    public Result[] decode(LuminanceSource source, int maxResults) throws NotFoundException {
+        long start = System.nanoTime();
+        Result[] results = null;
+        try {
+            _cappedReader.reset(Math.max(1, maxResults));
+            results = _reader.decodeMultiple(new BinaryBitmap(new HybridBinarizer(source)));
+            return results;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                _attempts++;
+                _nanos += elapsed;
+                if (results != null) {
+                    _results += results.length;
+                }
+            }
+        }
+    }
+
+    public synchronized long getAttempts() {
+        return _attempts;
+    }
+
+    public synchronized long getResultCount() {
+        return _results;
+    }
+
+    /**
+     * Average latency of a multi-symbol pass, in milliseconds.
+     */
+    public synchronized double getAverageLatency() {
+        return _attempts == 0 ? 0 : _nanos / 1e6 / _attempts;
+    }
+
+    /**
+     * Decodes with the delegate's current hints until `maxResults` distinct codes were found, and
+     * reports nothing found from then on so the remaining recursion ends cheaply.
+     */
+    private static class CappedReader implements Reader {
+        private final AdaptiveBarcodeReader _delegate;
+        private final Set<String> _found = new HashSet<>();
+        private int _maxResults;
+
+        CappedReader(AdaptiveBarcodeReader delegate) {
+            _delegate = delegate;
+        }
+
+        void reset(int maxResults) {
+            _maxResults = maxResults;
+            _found.clear();
+        }
+
+        @Override
+        public Result decode(BinaryBitmap image) throws NotFoundException {
+            if (_found.size() >= _maxResults) {
+                throw NotFoundException.getNotFoundInstance();
+            }
+            Result result = _delegate.decodeWithState(image);
+            _found.add(result.getBarcodeFormat().name() + ':' + result.getText());
+            return result;
+        }
+
+        @Override
+        public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+            return decode(image);
+        }
+
+        @Override
+        public void reset() {
+            _delegate.reset();
+        }
+    }
+}
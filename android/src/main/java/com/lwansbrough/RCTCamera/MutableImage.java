@@ -3,7 +3,9 @@ package com.lwansbrough.RCTCamera;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Matrix;
+import android.graphics.RectF;
 import android.media.ExifInterface;
+import android.os.Debug;
 import android.util.Base64;
 import android.util.Log;
 
@@ -26,35 +28,258 @@ import java.io.IOException;
 public class MutableImage {
     private static final String TAG = "RNCamera";
 
+    public static final int ORIENTATION_PIXELS = 0;
+    public static final int ORIENTATION_EXIF = 1;
+    public static final int ORIENTATION_LOSSLESS = 2;
+
     private final byte[] originalImageData;
+    // the JPEG written when no pixel transform was applied, possibly reoriented losslessly
+    private byte[] imageData;
+    // decoded when the pixels are needed only, null while the original JPEG is still good as is
     private Bitmap currentRepresentation;
+    // requested pixel transforms, composed and applied in a single pass by applyTransforms
+    private final Matrix pendingTransform = new Matrix();
+    private boolean hasPendingTransform = false;
+    // bounds the output is scaled down to, 0 for unbounded
+    private int maxWidth = 0;
+    private int maxHeight = 0;
+    // size of the JPEG as stored, read from its header on demand
+    private int[] encodedSize;
     private Metadata originalImageMetaData;
     private boolean hasBeenReoriented = false;
 
+    // memory high-water marks of processing this image
+    private final long baselineNativeHeap = Debug.getNativeHeapAllocatedSize();
+    private long peakNativeHeap = 0;
+    private long peakBitmapBytes = 0;
+
     public MutableImage(byte[] originalImageData) {
         this.originalImageData = originalImageData;
-        this.currentRepresentation = toBitmap(originalImageData);
+        this.imageData = originalImageData;
     }
 
-    public void mirrorImage() throws ImageMutationFailedException {
-        Matrix m = new Matrix();
+    public static int parseOrientationStrategy(String strategy) {
+        if ("exif".equals(strategy)) {
+            return ORIENTATION_EXIF;
+        } else if ("lossless".equals(strategy)) {
+            return ORIENTATION_LOSSLESS;
+        }
+        return ORIENTATION_PIXELS;
+    }
+
+    /**
+     * Whether the pixels were transformed, i.e. the image has to be re-encoded instead of passing
+     * the camera's JPEG through.
+     */
+    public boolean isTransformed() {
+        return hasPendingTransform || currentRepresentation != null || pendingScale() < 1;
+    }
+
+    /**
+     * Scales the image down to fit within the given size, in its final orientation; 0 leaves a side
+     * unbounded. An image that fits already is left alone, and can still be passed through.
+     */
+    public void resizeToFit(int maxWidth, int maxHeight) {
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    private float pendingScale() {
+        if (maxWidth <= 0 && maxHeight <= 0) {
+            return 1;
+        }
+        int[] size = transformedSize();
+        int width = size[0];
+        int height = size[1];
+        // an image that was not reoriented is presented as its orientation tag says
+        if (!hasBeenReoriented && ExifOrientation.isTransposed(ExifOrientation.read(imageData))) {
+            width = size[1];
+            height = size[0];
+        }
+        float scale = 1;
+        if (maxWidth > 0) {
+            scale = Math.min(scale, maxWidth / (float) width);
+        }
+        if (maxHeight > 0) {
+            scale = Math.min(scale, maxHeight / (float) height);
+        }
+        return scale;
+    }
+
+    /**
+     * Size of the stored or decoded image once the pending transforms are applied.
+     */
+    private int[] transformedSize() {
+        int width;
+        int height;
+        if (currentRepresentation != null) {
+            width = currentRepresentation.getWidth();
+            height = currentRepresentation.getHeight();
+        } else {
+            int[] size = encodedSize();
+            width = size[0];
+            height = size[1];
+        }
+        if (hasPendingTransform) {
+            RectF bounds = new RectF(0, 0, width, height);
+            pendingTransform.mapRect(bounds);
+            width = Math.round(bounds.width());
+            height = Math.round(bounds.height());
+        }
+        return new int[]{width, height};
+    }
+
+    private int[] encodedSize() {
+        if (encodedSize == null) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+            encodedSize = new int[]{options.outWidth, options.outHeight};
+        }
+        return encodedSize;
+    }
 
-        m.preScale(-1, 1);
+    /**
+     * Decodes the image if needed and applies all pending transforms as one matrix, so a rotation
+     * plus a mirror costs a single full-size bitmap copy. The superseded bitmap is recycled right
+     * away.
+     *
+     * With a size to fit, the JPEG is decoded subsampled to just above that size, and the final
+     * resample happens in the same pass: in the decoder when there is no other transform, else as
+     * part of the matrix.
+     */
+    public void applyTransforms() throws ImageMutationFailedException {
+        float scale = pendingScale();
+        maxWidth = 0;
+        maxHeight = 0;
+        int[] target = null;
+        if (scale < 1) {
+            int[] size = transformedSize();
+            target = new int[]{Math.max(1, Math.round(size[0] * scale)), Math.max(1, Math.round(size[1] * scale))};
+        }
+        if (currentRepresentation == null) {
+            currentRepresentation = decode(scale);
+            if (currentRepresentation == null)
+                throw new ImageMutationFailedException("failed to decode");
+            trackMemory(currentRepresentation, null);
+        }
 
-        Bitmap bitmap = Bitmap.createBitmap(
-                currentRepresentation,
+        if (target != null) {
+            // what is left of the scale after decoding
+            int[] size = transformedSize();
+            if (Math.abs(size[0] - target[0]) > 1 || Math.abs(size[1] - target[1]) > 1) {
+                float remaining = target[0] / (float) size[0];
+                pendingTransform.postScale(remaining, remaining);
+                hasPendingTransform = true;
+            }
+        }
+        if (!hasPendingTransform) {
+            return;
+        }
+
+        Bitmap source = currentRepresentation;
+        Bitmap transformedBitmap = Bitmap.createBitmap(
+                source,
                 0,
                 0,
-                currentRepresentation.getWidth(),
-                currentRepresentation.getHeight(),
-                m,
-                false
+                source.getWidth(),
+                source.getHeight(),
+                pendingTransform,
+                scale < 1
         );
 
-        if (bitmap == null)
-            throw new ImageMutationFailedException("failed to mirror");
+        if (transformedBitmap == null)
+            throw new ImageMutationFailedException("failed to transform");
 
-        this.currentRepresentation = bitmap;
+        trackMemory(source, transformedBitmap);
+        if (transformedBitmap != source) {
+            source.recycle();
+        }
+        this.currentRepresentation = transformedBitmap;
+        pendingTransform.reset();
+        hasPendingTransform = false;
+    }
+
+    private Bitmap currentRepresentation() {
+        try {
+            applyTransforms();
+        } catch (ImageMutationFailedException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return currentRepresentation;
+    }
+
+    /**
+     * Recycles the decoded bitmap; the image must not be used afterwards.
+     */
+    public void release() {
+        if (currentRepresentation != null) {
+            currentRepresentation.recycle();
+            currentRepresentation = null;
+        }
+    }
+
+    private void trackMemory(Bitmap first, Bitmap second) {
+        long bitmapBytes = first.getByteCount() + (second != null && second != first ? second.getByteCount() : 0);
+        peakBitmapBytes = Math.max(peakBitmapBytes, bitmapBytes);
+        peakNativeHeap = Math.max(peakNativeHeap, Debug.getNativeHeapAllocatedSize() - baselineNativeHeap);
+    }
+
+    /**
+     * Most bitmap memory held at once while processing, in bytes.
+     */
+    public long getPeakBitmapBytes() {
+        return peakBitmapBytes;
+    }
+
+    /**
+     * Highest native heap growth seen while processing, in bytes. Bitmap pixels live on the
+     * native heap from Android 8 on.
+     */
+    public long getPeakNativeHeap() {
+        return peakNativeHeap;
+    }
+
+    /**
+     * Queues a left-right mirror of the image, applied by {@link #applyTransforms()}.
+     */
+    public void mirrorImage() throws ImageMutationFailedException {
+        pendingTransform.postScale(-1, 1);
+        hasPendingTransform = true;
+    }
+
+    /**
+     * Presents the image upright, and mirrored if asked to, without decoding it:
+     *  - exif: only the EXIF orientation tag is rewritten, in place,
+     *  - lossless: the JPEG's DCT blocks are rotated, see LosslessJpegTransform; when the image
+     *    cannot be transformed losslessly the tag is rewritten as with exif.
+     *
+     * @param needsUprightPixels whether the consumer ignores the orientation tag, so only a lossless
+     *                           transform will do
+     * @return false if the pixel path (fixOrientation, mirrorImage) is needed after all
+     */
+    public boolean reorientWithoutDecoding(int strategy, boolean mirror, boolean needsUprightPixels) {
+        if (strategy == ORIENTATION_PIXELS || isTransformed()) {
+            return false;
+        }
+
+        int orientation = ExifOrientation.read(imageData);
+        int target = mirror ? ExifOrientation.mirrored(orientation) : orientation;
+        if (strategy == ORIENTATION_LOSSLESS && target != ExifOrientation.NORMAL) {
+            byte[] transformed = LosslessJpegTransform.transform(imageData, target);
+            if (transformed != null) {
+                imageData = transformed;
+                return true;
+            }
+        }
+
+        if (target == orientation) {
+            return !needsUprightPixels || target == ExifOrientation.NORMAL;
+        }
+        if (needsUprightPixels && target != ExifOrientation.NORMAL) {
+            return false;
+        }
+        return ExifOrientation.write(imageData, target);
     }
 
     public void fixOrientation() throws ImageMutationFailedException {
@@ -110,41 +335,56 @@ public class MutableImage {
                 break;
         }
 
-        Bitmap transformedBitmap = Bitmap.createBitmap(
-                currentRepresentation,
-                0,
-                0,
-                currentRepresentation.getWidth(),
-                currentRepresentation.getHeight(),
-                bitmapMatrix,
-                false
-        );
-
-        if (transformedBitmap == null)
-            throw new ImageMutationFailedException("failed to rotate");
-
-        this.currentRepresentation = transformedBitmap;
+        // applied together with any other transform by applyTransforms
+        pendingTransform.postConcat(bitmapMatrix);
+        hasPendingTransform = true;
         this.hasBeenReoriented = true;
     }
 
-    private static Bitmap toBitmap(byte[] data) {
-        try {
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
-            Bitmap photo = BitmapFactory.decodeStream(inputStream);
-            inputStream.close();
-            return photo;
-        } catch (IOException e) {
-            throw new IllegalStateException("Will not happen", e);
+    /**
+     * Decodes the JPEG at the given scale, or at least close to it.
+     */
+    private Bitmap decode(float scale) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        if (scale < 1) {
+            int[] size = encodedSize();
+            int targetWidth = Math.max(1, Math.round(size[0] * scale));
+            int targetHeight = Math.max(1, Math.round(size[1] * scale));
+            // the largest power of two subsampling that stays above the target
+            int sampleSize = 1;
+            while (size[0] / (sampleSize * 2) >= targetWidth && size[1] / (sampleSize * 2) >= targetHeight) {
+                sampleSize *= 2;
+            }
+            options.inSampleSize = sampleSize;
+            if (!hasPendingTransform) {
+                // nothing else to apply: the decoder does the final resample as well
+                options.inScaled = true;
+                options.inDensity = size[0] / sampleSize;
+                options.inTargetDensity = targetWidth;
+            }
         }
+        return BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
     }
 
+    /**
+     * The camera's JPEG as is when no pixel transform was applied, otherwise the transformed image
+     * encoded at the given quality.
+     */
     public String toBase64(int jpegQualityPercent) {
-        return Base64.encodeToString(toJpeg(currentRepresentation, jpegQualityPercent), Base64.DEFAULT);
+        if (!isTransformed()) {
+            return Base64.encodeToString(imageData, Base64.DEFAULT);
+        }
+        return Base64.encodeToString(toJpeg(currentRepresentation(), jpegQualityPercent), Base64.DEFAULT);
     }
 
     public void writeDataToFile(File file, ReadableMap options, int jpegQualityPercent) throws IOException {
+        if (!isTransformed()) {
+            writeOriginalToFile(file, options);
+            return;
+        }
+
         FileOutputStream fos = new FileOutputStream(file);
-        fos.write(toJpeg(currentRepresentation, jpegQualityPercent));
+        fos.write(toJpeg(currentRepresentation(), jpegQualityPercent));
         fos.close();
 
         try {
@@ -162,8 +402,11 @@ public class MutableImage {
 
             writeLocationExifData(options, exif);
 
+            // the orientation may have been rewritten in the JPEG after the metadata was read
             if(hasBeenReoriented)
                 rewriteOrientation(exif);
+            else
+                exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifOrientation.read(imageData)));
 
             exif.saveAttributes();
         } catch (ImageProcessingException  | IOException e) {
@@ -171,6 +414,38 @@ public class MutableImage {
         }
     }
 
+    /**
+     * Writes the camera's JPEG bytes without re-encoding them; its EXIF data is still in place, so
+     * only the location is added, which ExifInterface splices into the APP1 segment without
+     * touching the compressed image.
+     */
+    private void writeOriginalToFile(File file, ReadableMap options) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(imageData);
+        } finally {
+            fos.close();
+        }
+
+        if (!hasLocation(options)) {
+            return;
+        }
+
+        try {
+            ExifInterface exif = new ExifInterface(file.getAbsolutePath());
+            writeLocationExifData(options, exif);
+            exif.saveAttributes();
+        } catch (IOException e) {
+            Log.e(TAG, "failed to save exif data", e);
+        }
+    }
+
+    private static boolean hasLocation(ReadableMap options) {
+        return options.hasKey("metadata")
+                && options.getMap("metadata").hasKey("location")
+                && options.getMap("metadata").getMap("location").hasKey("coords");
+    }
+
     private void rewriteOrientation(ExifInterface exif) {
         exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifInterface.ORIENTATION_NORMAL));
     }
@@ -0,0 +1,298 @@
+package com.lwansbrough.RCTCamera;
+
+import android.os.Process;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.datamatrix.DataMatrixReader;
+import com.google.zxing.maxicode.MaxiCodeReader;
+import com.google.zxing.oned.MultiFormatOneDReader;
+import com.google.zxing.pdf417.PDF417Reader;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decodes one frame with a reader per symbology family (1D linear, 2D matrix, PDF417, MaxiCode)
+ * running in parallel on a small fixed pool.
+ *
+ * The frame is binarized once, as the {@link BinarizerStrategy} says, and every family reads the
+ * same BinaryBitmap. Families are ranked in the order the serial reader tries them, and a family's
+ * symbol is only taken once every family ranked before it found nothing, so a frame holding codes
+ * of several families yields the code the serial reader (without adaptive ordering or TRY_HARDER)
+ * would have found. Once the result is known, the remaining families stop at their next row fetch
+ * or between two of their readers.
+ */
+class ParallelBarcodeReader {
+    private static final Set<BarcodeFormat> MATRIX_FORMATS = EnumSet.of(
+            BarcodeFormat.QR_CODE,
+            BarcodeFormat.DATA_MATRIX,
+            BarcodeFormat.AZTEC
+    );
+
+    private final List<Family> _families = new ArrayList<>();
+    // whether a family reads the binarized matrix rather than rows
+    private final boolean _readsMatrix;
+    private final ExecutorService _executor;
+    private List<Future<Result>> _pendingDecodes = new ArrayList<>();
+
+    // luminance the family readers share, owned by this reader so losers still running after decode
+    // returns never read a buffer the caller already reuses
+    private byte[] _matrix = null;
+
+    ParallelBarcodeReader(Set<BarcodeFormat> requestedFormats) {
+        // like the serial reader, no formats at all means all of them
+        EnumSet<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        formats.addAll(requestedFormats);
+        if (formats.isEmpty()) {
+            formats = EnumSet.allOf(BarcodeFormat.class);
+        }
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+
+        // in the serial reader's order
+        EnumSet<BarcodeFormat> linearFormats = EnumSet.copyOf(formats);
+        linearFormats.removeAll(MATRIX_FORMATS);
+        linearFormats.remove(BarcodeFormat.PDF_417);
+        linearFormats.remove(BarcodeFormat.MAXICODE);
+        if (!linearFormats.isEmpty()) {
+            _families.add(new Family(hints, new MultiFormatOneDReader(hints)));
+        }
+        int linearFamilies = _families.size();
+        Family matrixFamily = new Family(hints);
+        if (formats.contains(BarcodeFormat.QR_CODE)) {
+            matrixFamily.readers.add(new QRCodeReader());
+        }
+        if (formats.contains(BarcodeFormat.DATA_MATRIX)) {
+            matrixFamily.readers.add(new DataMatrixReader());
+        }
+        if (formats.contains(BarcodeFormat.AZTEC)) {
+            matrixFamily.readers.add(new AztecReader());
+        }
+        if (!matrixFamily.readers.isEmpty()) {
+            _families.add(matrixFamily);
+        }
+        if (formats.contains(BarcodeFormat.PDF_417)) {
+            _families.add(new Family(hints, new PDF417Reader()));
+        }
+        if (formats.contains(BarcodeFormat.MAXICODE)) {
+            _families.add(new Family(hints, new MaxiCodeReader()));
+        }
+
+        _readsMatrix = _families.size() > linearFamilies;
+
+        int threads = Math.max(1, Math.min(_families.size(), Runtime.getRuntime().availableProcessors()));
+        _executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "RCTCameraBarcodeFamilyDecoder");
+            }
+        });
+    }
+
+    /**
+     * Decodes the source with all family readers and returns the symbol of the first family, in
+     * the serial order, to find one.
+     *
+     * @throws NotFoundException if no family reader finds a symbol
+     */
+    public Result decode(LuminanceSource source, BinarizerStrategy binarizerStrategy) throws NotFoundException, InterruptedException {
+        // readers are not thread safe, and the losers of the previous frame may still read
+        // `_matrix`: wait until they gave up
+        awaitPendingDecodes();
+
+        // lay the luminance out once, every family then reads the same matrix. It is copied, as
+        // the source may wrap the preview buffer, which goes back to the camera once we return.
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (_matrix == null || _matrix.length < width * height) {
+            _matrix = new byte[width * height];
+        }
+        System.arraycopy(source.getMatrix(), 0, _matrix, 0, width * height);
+        final CancellableLuminanceSource sharedSource = new CancellableLuminanceSource(new PlanarYUVLuminanceSource(
+                _matrix, width, height, 0, 0, width, height, false));
+
+        return binarizerStrategy.decode(sharedSource, new BinarizerStrategy.BitmapDecoder() {
+            @Override
+            public Result decode(BinaryBitmap bitmap) throws NotFoundException {
+                return decodeFamilies(bitmap, sharedSource);
+            }
+        });
+    }
+
+    private Result decodeFamilies(final BinaryBitmap bitmap, final CancellableLuminanceSource sharedSource) throws NotFoundException {
+        // binarize the whole frame here, once: only the 1D family reads rows, and BinaryBitmap
+        // computes its matrix lazily without synchronization
+        if (_readsMatrix) {
+            bitmap.getBlackMatrix();
+        }
+
+        CompletionService<Result> completionService = new ExecutorCompletionService<>(_executor);
+        List<Future<Result>> decodes = new ArrayList<>(_families.size());
+        for (final Family family : _families) {
+            decodes.add(completionService.submit(new Callable<Result>() {
+                @Override
+                public Result call() throws Exception {
+                    return family.decode(bitmap, sharedSource);
+                }
+            }));
+        }
+        _pendingDecodes.addAll(decodes);
+
+        Result result = null;
+        try {
+            // a family's symbol only counts once all families ranked before it are done
+            for (int i = 0; i < decodes.size() && result == null; i++) {
+                completionService.take();
+                result = firstInOrder(decodes);
+            }
+        } catch (InterruptedException e) {
+            // the engine is stopping, give up on the frame
+            Thread.currentThread().interrupt();
+            sharedSource.cancel();
+        }
+        if (result != null) {
+            sharedSource.cancel();
+        }
+
+        if (result == null) {
+            throw NotFoundException.getNotFoundInstance();
+        }
+        return result;
+    }
+
+    /**
+     * The symbol of the first family that found one, provided every family before it is done;
+     * null if none qualifies yet.
+     */
+    private static Result firstInOrder(List<Future<Result>> decodes) throws InterruptedException {
+        for (Future<Result> decode : decodes) {
+            if (!decode.isDone()) {
+                return null;
+            }
+            try {
+                return decode.get();
+            } catch (ExecutionException e) {
+                // nothing found by this family
+            }
+        }
+        return null;
+    }
+
+    public void shutdown() {
+        _executor.shutdownNow();
+    }
+
+    private void awaitPendingDecodes() throws InterruptedException {
+        for (Future<Result> decode : _pendingDecodes) {
+            try {
+                decode.get();
+            } catch (ExecutionException e) {
+                // outcome no longer matters
+            }
+        }
+        _pendingDecodes.clear();
+    }
+
+    /**
+     * The readers of a family, tried in turn like the serial reader tries them.
+     */
+    private static class Family {
+        final Map<DecodeHintType, Object> hints;
+        final List<Reader> readers = new ArrayList<>();
+
+        Family(Map<DecodeHintType, Object> hints, Reader... readers) {
+            this.hints = hints;
+            for (Reader reader : readers) {
+                this.readers.add(reader);
+            }
+        }
+
+        Result decode(BinaryBitmap bitmap, CancellableLuminanceSource source) throws NotFoundException {
+            for (Reader reader : readers) {
+                // a 2D reader no longer touches the source once it has the matrix: stop between
+                // readers instead
+                if (source.isCancelled()) {
+                    break;
+                }
+                try {
+                    return reader.decode(bitmap, hints);
+                } catch (ReaderException e) {
+                    // try the next reader
+                } catch (IllegalStateException e) {
+                    // cancelled during a row fetch
+                    break;
+                } finally {
+                    reader.reset();
+                }
+            }
+            throw NotFoundException.getNotFoundInstance();
+        }
+    }
+
+    /**
+     * Lets the losing family readers bail out early: once cancelled, every further row fetch fails
+     * as if nothing had been found. Row scanning 1D readers stop almost immediately, 2D readers
+     * stop before their next reader.
+     */
+    private static class CancellableLuminanceSource extends LuminanceSource {
+        private final LuminanceSource _delegate;
+        private volatile boolean _cancelled = false;
+
+        CancellableLuminanceSource(LuminanceSource delegate) {
+            super(delegate.getWidth(), delegate.getHeight());
+            _delegate = delegate;
+        }
+
+        void cancel() {
+            _cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return _cancelled;
+        }
+
+        @Override
+        public byte[] getRow(int y, byte[] row) {
+            if (_cancelled) {
+                throw new IllegalStateException("decode cancelled");
+            }
+            return _delegate.getRow(y, row);
+        }
+
+        @Override
+        public byte[] getMatrix() {
+            if (_cancelled) {
+                throw new IllegalStateException("decode cancelled");
+            }
+            return _delegate.getMatrix();
+        }
+    }
+}
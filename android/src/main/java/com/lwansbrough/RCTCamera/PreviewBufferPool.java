@@ -0,0 +1,119 @@
+package com.lwansbrough.RCTCamera;
+
+import android.graphics.ImageFormat;
+import android.hardware.Camera;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+
+/**
+ * Pool of preview frame buffers handed to the camera through
+ * {@link Camera#addCallbackBuffer(byte[])}.
+ *
+ * Frames delivered via {@link Camera#setPreviewCallbackWithBuffer(Camera.PreviewCallback)} keep
+ * ownership of their buffer until {@link #release(byte[])} is called, at which point the buffer
+ * is queued back on the camera (or kept aside for the next camera session). This keeps the
+ * preview path from allocating a new multi-megabyte array for every frame.
+ */
+class PreviewBufferPool {
+    public static final int DEFAULT_POOL_SIZE = 3;
+
+    private final ArrayDeque<byte[]> _freeBuffers = new ArrayDeque<>();
+    // frame wrapper of each buffer, reused for every frame delivered in it
+    private final IdentityHashMap<byte[], FrameSource.Frame> _frames = new IdentityHashMap<>();
+    private Camera _camera;
+    private int _poolSize = DEFAULT_POOL_SIZE;
+    private int _bufferSize = 0;
+    private int _allocationCount = 0;
+    private int _recycleCount = 0;
+
+    public synchronized void setPoolSize(int poolSize) {
+        _poolSize = Math.max(1, poolSize);
+        while (_freeBuffers.size() > _poolSize) {
+            _freeBuffers.poll();
+        }
+    }
+
+    public synchronized int getPoolSize() {
+        return _poolSize;
+    }
+
+    /**
+     * Sizes the pool from the negotiated preview size and format of the given camera and queues
+     * {@link #getPoolSize()} buffers on it. Must be called after the preview parameters are set.
+     */
+    public synchronized void attach(Camera camera, int previewWidth, int previewHeight, int previewFormat) {
+        int bitsPerPixel = ImageFormat.getBitsPerPixel(previewFormat);
+        int bufferSize = previewWidth * previewHeight * bitsPerPixel / 8;
+
+        if (bufferSize != _bufferSize) {
+            // buffers of the previous size are useless to the camera, let them be collected
+            _freeBuffers.clear();
+            _bufferSize = bufferSize;
+        }
+        // wrappers belong to the source of the previous session
+        _frames.clear();
+
+        _camera = camera;
+        for (int i = 0; i < _poolSize; i++) {
+            camera.addCallbackBuffer(obtain());
+        }
+    }
+
+    /**
+     * Forget the camera; buffers released from now on are kept for the next {@link #attach(Camera, int, int, int)}.
+     */
+    public synchronized void detach() {
+        _camera = null;
+    }
+
+    /**
+     * Hand a buffer received in onPreviewFrame back to the pool once nothing reads it anymore.
+     */
+    public synchronized void release(byte[] buffer) {
+        if (buffer == null || buffer.length != _bufferSize) {
+            return;
+        }
+
+        if (_camera != null) {
+            _recycleCount++;
+            _camera.addCallbackBuffer(buffer);
+        } else if (_freeBuffers.size() < _poolSize) {
+            _freeBuffers.push(buffer);
+        }
+    }
+
+    /**
+     * The frame wrapper of a buffer received in onPreviewFrame, created once per buffer and
+     * session. The buffer's previous frame must have been released.
+     */
+    public synchronized FrameSource.Frame obtainFrame(FrameSource source, byte[] buffer) {
+        FrameSource.Frame frame = _frames.get(buffer);
+        if (frame == null) {
+            frame = new FrameSource.Frame(source, buffer);
+            _frames.put(buffer, frame);
+        }
+        return frame;
+    }
+
+    public synchronized int getBufferSize() {
+        return _bufferSize;
+    }
+
+    public synchronized int getAllocationCount() {
+        return _allocationCount;
+    }
+
+    public synchronized int getRecycleCount() {
+        return _recycleCount;
+    }
+
+    private byte[] obtain() {
+        byte[] buffer = _freeBuffers.poll();
+        if (buffer == null) {
+            _allocationCount++;
+            buffer = new byte[_bufferSize];
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,185 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.detector.Detector;
+
+/**
+ * Coarse-to-fine decoding: every frame is first decoded from a box-downsampled copy of its
+ * luminance, and only escalated to full resolution when
+ *  - the coarse pass located a QR finder pattern but could not read the symbol, or
+ *  - the coarse pass missed on `escalateAfter` frames in a row.
+ *
+ * The downsampled plane is built into a buffer that is reused across frames.
+ */
+class PyramidDecoder {
+    public static final int LEVEL_COARSE = 0;
+    public static final int LEVEL_FULL = 1;
+    public static final int DEFAULT_ESCALATE_AFTER = 3;
+
+    interface Reader {
+        Result decode(LuminanceSource source) throws Exception;
+    }
+
+    private int _factor = 1;
+    private int _escalateAfter = DEFAULT_ESCALATE_AFTER;
+    private int _consecutiveMisses = 0;
+
+    private byte[] _coarsePlane = null;
+    private int[] _rowSums = null;
+    private byte[] _row = null;
+
+    private final long[] _attempts = new long[2];
+    private final long[] _hits = new long[2];
+    private final long[] _nanos = new long[2];
+
+    /**
+     * @param factor downsampling factor of the coarse pass, 1 disables the pyramid
+     */
+    public synchronized void configure(int factor, int escalateAfter) {
+        _factor = Math.max(1, factor);
+        _escalateAfter = Math.max(1, escalateAfter);
+    }
+
+    public synchronized boolean isEnabled() {
+        return _factor > 1;
+    }
+
+    /**
+     * @param detectQrCodes whether a coarse miss should look for QR finder patterns to escalate on
+     */
+    public Result decode(LuminanceSource source, Reader reader, boolean detectQrCodes) throws Exception {
+        int factor;
+        int escalateAfter;
+        synchronized (this) {
+            factor = _factor;
+            escalateAfter = _escalateAfter;
+        }
+
+        int coarseWidth = source.getWidth() / factor;
+        int coarseHeight = source.getHeight() / factor;
+        if (factor <= 1 || coarseWidth == 0 || coarseHeight == 0) {
+            return decodeLevel(LEVEL_FULL, source, reader);
+        }
+
+        LuminanceSource coarseSource = downsample(source, factor, coarseWidth, coarseHeight);
+        boolean escalate;
+        try {
+            Result result = decodeLevel(LEVEL_COARSE, coarseSource, reader);
+            _consecutiveMisses = 0;
+            return scale(result, factor);
+        } catch (Exception e) {
+            _consecutiveMisses++;
+            escalate = _consecutiveMisses >= escalateAfter
+                    || (detectQrCodes && hasQrFinderPattern(coarseSource));
+            if (!escalate) {
+                throw e;
+            }
+        }
+
+        _consecutiveMisses = 0;
+        return decodeLevel(LEVEL_FULL, source, reader);
+    }
+
+    private Result decodeLevel(int level, LuminanceSource source, Reader reader) throws Exception {
+        long start = System.nanoTime();
+        try {
+            Result result = reader.decode(source);
+            synchronized (this) {
+                _hits[level]++;
+            }
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                _attempts[level]++;
+                _nanos[level] += elapsed;
+            }
+        }
+    }
+
+    private static boolean hasQrFinderPattern(LuminanceSource source) {
+        try {
+            new Detector(new BinaryBitmap(new HybridBinarizer(source)).getBlackMatrix()).detect();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Averages factor x factor blocks of the source into the reused coarse plane.
+     */
+    private LuminanceSource downsample(LuminanceSource source, int factor, int coarseWidth, int coarseHeight) {
+        int width = source.getWidth();
+        if (_coarsePlane == null || _coarsePlane.length < coarseWidth * coarseHeight) {
+            _coarsePlane = new byte[coarseWidth * coarseHeight];
+        }
+        if (_rowSums == null || _rowSums.length < coarseWidth) {
+            _rowSums = new int[coarseWidth];
+        }
+        if (_row == null || _row.length < width) {
+            _row = new byte[width];
+        }
+
+        int blockArea = factor * factor;
+        for (int coarseY = 0; coarseY < coarseHeight; coarseY++) {
+            for (int x = 0; x < coarseWidth; x++) {
+                _rowSums[x] = 0;
+            }
+            for (int dy = 0; dy < factor; dy++) {
+                byte[] row = source.getRow(coarseY * factor + dy, _row);
+                for (int coarseX = 0, x = 0; coarseX < coarseWidth; coarseX++) {
+                    int sum = 0;
+                    for (int dx = 0; dx < factor; dx++, x++) {
+                        sum += row[x] & 0xff;
+                    }
+                    _rowSums[coarseX] += sum;
+                }
+            }
+            int offset = coarseY * coarseWidth;
+            for (int coarseX = 0; coarseX < coarseWidth; coarseX++) {
+                _coarsePlane[offset + coarseX] = (byte) (_rowSums[coarseX] / blockArea);
+            }
+        }
+
+        return new PlanarYUVLuminanceSource(_coarsePlane, coarseWidth, coarseHeight, 0, 0, coarseWidth, coarseHeight, false);
+    }
+
+    /**
+     * Maps the result points of a coarse decode back to full resolution.
+     */
+    private static Result scale(Result result, int factor) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null) {
+            return result;
+        }
+        ResultPoint[] scaledPoints = new ResultPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            scaledPoints[i] = points[i] == null ? null : new ResultPoint(points[i].getX() * factor, points[i].getY() * factor);
+        }
+        Result scaled = new Result(result.getText(), result.getRawBytes(), scaledPoints, result.getBarcodeFormat(), result.getTimestamp());
+        scaled.putAllMetadata(result.getResultMetadata());
+        return scaled;
+    }
+
+    public synchronized long getAttempts(int level) {
+        return _attempts[level];
+    }
+
+    public synchronized long getHits(int level) {
+        return _hits[level];
+    }
+
+    /**
+     * Average decode latency at the given level, in milliseconds.
+     */
+    public synchronized double getAverageLatency(int level) {
+        return _attempts[level] == 0 ? 0 : _nanos[level] / 1e6 / _attempts[level];
+    }
+}
@@ -4,13 +4,18 @@
 
 package com.lwansbrough.RCTCamera;
 
+import android.graphics.RectF;
 import android.hardware.Camera;
 import android.media.CamcorderProfile;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.lang.Math;
 
 public class RCTCamera {
@@ -18,11 +23,37 @@ public class RCTCamera {
     private final HashMap<Integer, CameraInfoWrapper> _cameraInfos;
     private final HashMap<Integer, Integer> _cameraTypeToIndex;
     private final Map<Number, Camera> _cameras;
+    private final Handler _parametersHandler = new Handler(Looper.getMainLooper());
+    private final Set<Integer> _pendingParameterCommits = new HashSet<>();
     private static final Resolution RESOLUTION_480P = new Resolution(853, 480); // 480p shoots for a 16:9 HD aspect ratio, but can otherwise fall back/down to any other supported camera sizes, such as 800x480 or 720x480, if (any) present. See getSupportedPictureSizes/getSupportedVideoSizes below.
     private static final Resolution RESOLUTION_720P = new Resolution(1280, 720);
     private static final Resolution RESOLUTION_1080P = new Resolution(1920, 1080);
     private boolean _barcodeScannerEnabled = false;
     private List<String> _barCodeTypes = null;
+    private boolean _parallelDecodeEnabled = false;
+    private int _pyramidFactor = 1;
+    private int _barCodeDedupeTtl = 0;
+    private int _barCodeDedupeCapacity = BarcodeResultCache.DEFAULT_CAPACITY;
+    private int _barCodeHeartbeatInterval = 0;
+    private int _barCodeBatchInterval = 0;
+    private boolean _multiBarcodeEnabled = false;
+    private int _multiBarcodeMaxResults = MultiBarcodeDecoder.DEFAULT_MAX_RESULTS;
+    private float _sharpnessThreshold = 0;
+    private float _sceneChangeThreshold = 0;
+    private boolean _roiTrackingEnabled = false;
+    private float _scanRate = 0;
+    private int _binarizer = BinarizerStrategy.HYBRID;
+    private boolean _adaptiveReadersEnabled = false;
+    private int _tryHarderAfter = 0;
+    private int _invertedScan = InvertedScan.OFF;
+    private float _idleScanRate = ScanRateGovernor.DEFAULT_IDLE_RATE;
+    private float _roiTrackingMargin = RoiTracker.DEFAULT_MARGIN;
+    private int _sceneChangeMaxSkip = SceneChangeDetector.DEFAULT_MAX_SKIP_INTERVAL;
+    private int _pyramidEscalateAfter = PyramidDecoder.DEFAULT_ESCALATE_AFTER;
+    private int _previewBufferPoolSize = PreviewBufferPool.DEFAULT_POOL_SIZE;
+    private RCTCameraViewFinder _activeViewFinder = null;
+    private final FrameProcessorRegistry _frameProcessors = new FrameProcessorRegistry();
+    private final CaptureScheduler _captureScheduler = new CaptureScheduler();
     private int _orientation = -1;
     private int _actualDeviceOrientation = 0;
     private int _adjustedDeviceOrientation = 0;
@@ -40,6 +71,8 @@ public class RCTCamera {
             try {
                 Camera camera = Camera.open(_cameraTypeToIndex.get(type));
                 _cameras.put(type, camera);
+                _cameraInfos.get(type).parameters = camera.getParameters();
+                _cameraInfos.get(type).defaultJpegQuality = _cameraInfos.get(type).parameters.getJpegQuality();
                 adjustPreviewLayout(type);
             } catch (Exception e) {
                 Log.e("RCTCamera", "acquireCameraInstance failed", e);
@@ -48,15 +81,140 @@ public class RCTCamera {
         return _cameras.get(type);
     }
 
-    public void releaseCameraInstance(int type) {
+    public synchronized void releaseCameraInstance(int type) {
         // Release seems async and creates race conditions. Remove from map first before releasing.
         Camera releasingCamera = _cameras.get(type);
         if (null != releasingCamera) {
             _cameras.remove(type);
+            _pendingParameterCommits.remove(type);
+            _cameraInfos.get(type).parameters = null;
             releasingCamera.release();
         }
     }
 
+    /**
+     * Edits the parameters of an open camera. See {@link #editParameters(int, ParametersEditor)}.
+     */
+    interface ParametersEditor {
+        /**
+         * Modify the given parameters; return false if nothing was changed.
+         */
+        boolean edit(Camera.Parameters parameters);
+    }
+
+    /**
+     * Reads values from the parameters of an open camera. See {@link #readParameters(int, ParametersReader)}.
+     */
+    interface ParametersReader<T> {
+        /**
+         * Read from the given parameters, which must not be modified nor kept.
+         */
+        T read(Camera.Parameters parameters);
+    }
+
+    /**
+     * Returns the cached parameters of an open camera, or null. Fetching parameters from the camera
+     * flattens and parses the whole parameter string, so this snapshot is kept instead. It is edited
+     * and replaced under this object's lock, so it must only be used while holding it.
+     */
+    private Camera.Parameters getParameters(int type) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == cameraInfo) {
+            return null;
+        }
+        return cameraInfo.parameters;
+    }
+
+    /**
+     * Runs the reader on the cached parameters of an open camera, under the lock that edits and
+     * commits of the parameters hold, from any thread. Values returned by Camera.Parameters getters
+     * are parsed on every call, so the reader's result can be used after the lock is released.
+     *
+     * @return the reader's result, null if the camera is not open
+     */
+    public synchronized <T> T readParameters(int type, ParametersReader<T> reader) {
+        Camera.Parameters parameters = getParameters(type);
+        if (null == parameters) {
+            return null;
+        }
+        return reader.read(parameters);
+    }
+
+    /**
+     * Applies an edit to the cached parameters of an open camera and schedules them to be pushed to
+     * the camera on the main thread. All edits made before that (e.g. several props updated in the
+     * same frame) are coalesced into a single Camera.setParameters call. Use
+     * {@link #commitParameters(int)} to push pending edits right away.
+     *
+     * @return false if the camera is not open or the editor changed nothing
+     */
+    public synchronized boolean editParameters(final int type, ParametersEditor editor) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == _cameras.get(type) || null == cameraInfo || null == cameraInfo.parameters) {
+            return false;
+        }
+        if (!editor.edit(cameraInfo.parameters)) {
+            return false;
+        }
+
+        if (_pendingParameterCommits.add(type)) {
+            _parametersHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    commitParameters(type);
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Pushes the cached parameters of an open camera to the camera now. If the camera rejects them,
+     * the cache is re-synchronized with the parameters the camera actually holds.
+     */
+    public synchronized void commitParameters(int type) {
+        _pendingParameterCommits.remove(type);
+        Camera camera = _cameras.get(type);
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == camera || null == cameraInfo || null == cameraInfo.parameters) {
+            return;
+        }
+
+        try {
+            camera.setParameters(cameraInfo.parameters);
+        } catch (RuntimeException e) {
+            Log.e("RCTCamera", "setParameters failed", e);
+            cameraInfo.parameters = camera.getParameters();
+        }
+    }
+
+    /**
+     * Size of the preview frames delivered by the camera, in sensor orientation.
+     */
+    public int getPreviewFrameWidth(int type) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == cameraInfo) {
+            return 0;
+        }
+        return cameraInfo.previewFrameWidth;
+    }
+
+    public int getPreviewFrameHeight(int type) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == cameraInfo) {
+            return 0;
+        }
+        return cameraInfo.previewFrameHeight;
+    }
+
+    public int getPreviewFrameFormat(int type) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == cameraInfo) {
+            return 0;
+        }
+        return cameraInfo.previewFrameFormat;
+    }
+
     public int getPreviewWidth(int type) {
         CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
         if (null == cameraInfo) {
@@ -73,6 +231,40 @@ public class RCTCamera {
         return cameraInfo.previewHeight;
     }
 
+    /**
+     * Maps a rectangle in normalized coordinates of the on-screen preview to normalized coordinates
+     * of the unrotated preview frames delivered by the camera, undoing the display rotation and the
+     * mirroring applied to front-facing previews.
+     */
+    public RectF previewRectToSensorRect(int type, RectF previewRect) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == cameraInfo) {
+            return previewRect;
+        }
+
+        RectF sensorRect = RCTCameraUtils.rotateNormalizedRect(previewRect, 360 - cameraInfo.displayRotation);
+        if (cameraInfo.info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
+            sensorRect = RCTCameraUtils.mirrorNormalizedRect(sensorRect);
+        }
+        return sensorRect;
+    }
+
+    /**
+     * Inverse of {@link #previewRectToSensorRect(int, RectF)} for the normalized (x, y) pairs of
+     * `points`, mapped in place.
+     */
+    public void sensorPointsToPreviewPoints(int type, float[] points) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(type);
+        if (null == cameraInfo) {
+            return;
+        }
+
+        if (cameraInfo.info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
+            RCTCameraUtils.mirrorNormalizedPoints(points);
+        }
+        RCTCameraUtils.rotateNormalizedPoints(points, cameraInfo.displayRotation);
+    }
+
     public Camera.Size getBestSize(List<Camera.Size> supportedSizes, int maxWidth, int maxHeight) {
         Camera.Size bestSize = null;
         for (Camera.Size size : supportedSizes) {
@@ -133,8 +325,11 @@ public class RCTCamera {
       return closestSize;
     }
 
-    protected List<Camera.Size> getSupportedVideoSizes(Camera camera) {
-        Camera.Parameters params = camera.getParameters();
+    protected synchronized List<Camera.Size> getSupportedVideoSizes(int type) {
+        Camera.Parameters params = getParameters(type);
+        if (null == params) {
+            return null;
+        }
         // defer to preview instead of params.getSupportedVideoSizes() http://bit.ly/1rxOsq0
         // but prefer SupportedVideoSizes!
         List<Camera.Size> sizes = params.getSupportedVideoSizes();
@@ -176,6 +371,214 @@ public class RCTCamera {
         _barCodeTypes = barCodeTypes;
     }
 
+    public boolean isParallelDecodeEnabled() {
+        return _parallelDecodeEnabled;
+    }
+
+    public void setParallelDecodeEnabled(boolean parallelDecodeEnabled) {
+        _parallelDecodeEnabled = parallelDecodeEnabled;
+    }
+
+    public int getBarCodeDedupeTtl() {
+        return _barCodeDedupeTtl;
+    }
+
+    public void setBarCodeDedupeTtl(int barCodeDedupeTtl) {
+        _barCodeDedupeTtl = barCodeDedupeTtl;
+    }
+
+    public int getBarCodeDedupeCapacity() {
+        return _barCodeDedupeCapacity;
+    }
+
+    public void setBarCodeDedupeCapacity(int barCodeDedupeCapacity) {
+        _barCodeDedupeCapacity = barCodeDedupeCapacity;
+    }
+
+    public int getBarCodeHeartbeatInterval() {
+        return _barCodeHeartbeatInterval;
+    }
+
+    public void setBarCodeHeartbeatInterval(int barCodeHeartbeatInterval) {
+        _barCodeHeartbeatInterval = barCodeHeartbeatInterval;
+    }
+
+    public int getBarCodeBatchInterval() {
+        return _barCodeBatchInterval;
+    }
+
+    public void setBarCodeBatchInterval(int barCodeBatchInterval) {
+        _barCodeBatchInterval = barCodeBatchInterval;
+    }
+
+    public boolean isMultiBarcodeEnabled() {
+        return _multiBarcodeEnabled;
+    }
+
+    public void setMultiBarcodeEnabled(boolean multiBarcodeEnabled) {
+        _multiBarcodeEnabled = multiBarcodeEnabled;
+    }
+
+    public int getMultiBarcodeMaxResults() {
+        return _multiBarcodeMaxResults;
+    }
+
+    public void setMultiBarcodeMaxResults(int multiBarcodeMaxResults) {
+        _multiBarcodeMaxResults = Math.max(1, multiBarcodeMaxResults);
+    }
+
+    public float getSharpnessThreshold() {
+        return _sharpnessThreshold;
+    }
+
+    public void setSharpnessThreshold(float sharpnessThreshold) {
+        _sharpnessThreshold = sharpnessThreshold;
+    }
+
+    public float getSceneChangeThreshold() {
+        return _sceneChangeThreshold;
+    }
+
+    public void setSceneChangeThreshold(float sceneChangeThreshold) {
+        _sceneChangeThreshold = sceneChangeThreshold;
+    }
+
+    public int getSceneChangeMaxSkip() {
+        return _sceneChangeMaxSkip;
+    }
+
+    public void setSceneChangeMaxSkip(int sceneChangeMaxSkip) {
+        _sceneChangeMaxSkip = sceneChangeMaxSkip;
+    }
+
+    public boolean isRoiTrackingEnabled() {
+        return _roiTrackingEnabled;
+    }
+
+    public void setRoiTrackingEnabled(boolean roiTrackingEnabled) {
+        _roiTrackingEnabled = roiTrackingEnabled;
+    }
+
+    public float getRoiTrackingMargin() {
+        return _roiTrackingMargin;
+    }
+
+    public void setRoiTrackingMargin(float roiTrackingMargin) {
+        _roiTrackingMargin = Math.max(0, roiTrackingMargin);
+    }
+
+    public float getScanRate() {
+        return _scanRate;
+    }
+
+    public void setScanRate(float scanRate) {
+        _scanRate = scanRate;
+    }
+
+    public float getIdleScanRate() {
+        return _idleScanRate;
+    }
+
+    public void setIdleScanRate(float idleScanRate) {
+        _idleScanRate = idleScanRate;
+    }
+
+    public int getBinarizer() {
+        return _binarizer;
+    }
+
+    public void setBinarizer(int binarizer) {
+        _binarizer = binarizer;
+    }
+
+    public boolean isAdaptiveReadersEnabled() {
+        return _adaptiveReadersEnabled;
+    }
+
+    public void setAdaptiveReadersEnabled(boolean adaptiveReadersEnabled) {
+        _adaptiveReadersEnabled = adaptiveReadersEnabled;
+    }
+
+    public int getTryHarderAfter() {
+        return _tryHarderAfter;
+    }
+
+    public void setTryHarderAfter(int tryHarderAfter) {
+        _tryHarderAfter = tryHarderAfter;
+    }
+
+    public int getInvertedScan() {
+        return _invertedScan;
+    }
+
+    public void setInvertedScan(int invertedScan) {
+        _invertedScan = invertedScan;
+    }
+
+    public int getPyramidFactor() {
+        return _pyramidFactor;
+    }
+
+    public void setPyramidFactor(int pyramidFactor) {
+        _pyramidFactor = pyramidFactor;
+    }
+
+    public int getPyramidEscalateAfter() {
+        return _pyramidEscalateAfter;
+    }
+
+    public void setPyramidEscalateAfter(int pyramidEscalateAfter) {
+        _pyramidEscalateAfter = pyramidEscalateAfter;
+    }
+
+    public int getPreviewBufferPoolSize() {
+        return _previewBufferPoolSize;
+    }
+
+    public void setPreviewBufferPoolSize(int previewBufferPoolSize) {
+        _previewBufferPoolSize = previewBufferPoolSize;
+    }
+
+    /**
+     * Runs the processing of captured pictures, see RCTCameraModule.processImage.
+     */
+    public CaptureScheduler getCaptureScheduler() {
+        return _captureScheduler;
+    }
+
+    public void setCaptureParallelism(int captureParallelism) {
+        _captureScheduler.setParallelism(captureParallelism);
+    }
+
+    public void setCaptureMemoryBudget(long captureMemoryBudget) {
+        _captureScheduler.setMemoryBudget(captureMemoryBudget);
+    }
+
+    public void setCaptureQueueDepth(int captureQueueDepth) {
+        _captureScheduler.setMaxQueueDepth(captureQueueDepth);
+    }
+
+    /**
+     * Native consumers of the preview frames, next to the barcode scanner.
+     */
+    public FrameProcessorRegistry getFrameProcessors() {
+        return _frameProcessors;
+    }
+
+    public synchronized RCTCameraViewFinder getActiveViewFinder() {
+        return _activeViewFinder;
+    }
+
+    public synchronized void setActiveViewFinder(RCTCameraViewFinder viewFinder) {
+        _activeViewFinder = viewFinder;
+    }
+
+    public synchronized void clearActiveViewFinder(RCTCameraViewFinder viewFinder) {
+        if (_activeViewFinder == viewFinder) {
+            _activeViewFinder = null;
+        }
+    }
+
     public int getActualDeviceOrientation() {
         return _actualDeviceOrientation;
     }
@@ -195,56 +598,122 @@ public class RCTCamera {
     }
 
     public void setCaptureMode(final int cameraType, final int captureMode) {
-        Camera camera = _cameras.get(cameraType);
-        if (camera == null) {
-            return;
-        }
-
         // Set (video) recording hint based on camera type. For video recording, setting
         // this hint can help reduce the time it takes to start recording.
-        Camera.Parameters parameters = camera.getParameters();
-        parameters.setRecordingHint(captureMode == RCTCameraModule.RCT_CAMERA_CAPTURE_MODE_VIDEO);
-        camera.setParameters(parameters);
+        editParameters(cameraType, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                parameters.setRecordingHint(captureMode == RCTCameraModule.RCT_CAMERA_CAPTURE_MODE_VIDEO);
+                return true;
+            }
+        });
     }
 
-    public void setCaptureQuality(int cameraType, String captureQuality) {
+    public void setCaptureQuality(int cameraType, final String captureQuality) {
         Camera camera = this.acquireCameraInstance(cameraType);
         if (camera == null) {
             return;
         }
 
-        Camera.Parameters parameters = camera.getParameters();
-        Camera.Size pictureSize = null;
-        List<Camera.Size> supportedSizes = parameters.getSupportedPictureSizes();
-        switch (captureQuality) {
-            case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_LOW:
-                pictureSize = getSmallestSize(supportedSizes);
-                break;
-            case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_MEDIUM:
-                pictureSize = supportedSizes.get(supportedSizes.size() / 2);
-                break;
-            case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_HIGH:
-                pictureSize = getBestSize(parameters.getSupportedPictureSizes(), Integer.MAX_VALUE, Integer.MAX_VALUE);
-                break;
-            case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_PREVIEW:
-                Camera.Size optimalPreviewSize = getBestSize(parameters.getSupportedPreviewSizes(), Integer.MAX_VALUE, Integer.MAX_VALUE);
-                pictureSize = getClosestSize(parameters.getSupportedPictureSizes(), optimalPreviewSize.width, optimalPreviewSize.height);
-                break;
-            case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_480P:
-                pictureSize = getBestSize(supportedSizes, RESOLUTION_480P.width, RESOLUTION_480P.height);
-                break;
-            case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_720P:
-                pictureSize = getBestSize(supportedSizes, RESOLUTION_720P.width, RESOLUTION_720P.height);
-                break;
-            case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_1080P:
-                pictureSize = getBestSize(supportedSizes, RESOLUTION_1080P.width, RESOLUTION_1080P.height);
-                break;
+        editParameters(cameraType, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                Camera.Size pictureSize = null;
+                List<Camera.Size> supportedSizes = parameters.getSupportedPictureSizes();
+                switch (captureQuality) {
+                    case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_LOW:
+                        pictureSize = getSmallestSize(supportedSizes);
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_MEDIUM:
+                        pictureSize = supportedSizes.get(supportedSizes.size() / 2);
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_HIGH:
+                        pictureSize = getBestSize(parameters.getSupportedPictureSizes(), Integer.MAX_VALUE, Integer.MAX_VALUE);
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_PREVIEW:
+                        Camera.Size optimalPreviewSize = getBestSize(parameters.getSupportedPreviewSizes(), Integer.MAX_VALUE, Integer.MAX_VALUE);
+                        pictureSize = getClosestSize(parameters.getSupportedPictureSizes(), optimalPreviewSize.width, optimalPreviewSize.height);
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_480P:
+                        pictureSize = getBestSize(supportedSizes, RESOLUTION_480P.width, RESOLUTION_480P.height);
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_720P:
+                        pictureSize = getBestSize(supportedSizes, RESOLUTION_720P.width, RESOLUTION_720P.height);
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_1080P:
+                        pictureSize = getBestSize(supportedSizes, RESOLUTION_1080P.width, RESOLUTION_1080P.height);
+                        break;
+                }
+
+                if (pictureSize == null) {
+                    return false;
+                }
+                parameters.setPictureSize(pictureSize.width, pictureSize.height);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Lowers the picture size to the smallest one, of the same aspect ratio, that still covers the
+     * given output size in any orientation, so less has to be decoded and scaled down afterwards.
+     * 0 leaves a side unbounded.
+     */
+    public void setCaptureMaxSize(int cameraType, int maxWidth, int maxHeight) {
+        final int maxSide = Math.max(maxWidth, maxHeight);
+        if (maxSide <= 0) {
+            return;
         }
+        editParameters(cameraType, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                Camera.Size current = parameters.getPictureSize();
+                int currentLong = Math.max(current.width, current.height);
+                int neededLong = Math.min(currentLong, maxSide);
+                Camera.Size best = null;
+                for (Camera.Size size : parameters.getSupportedPictureSizes()) {
+                    int sizeLong = Math.max(size.width, size.height);
+                    boolean sameAspect = Math.abs(size.width * current.height - size.height * current.width)
+                            <= current.width * current.height / 100;
+                    if (sameAspect && sizeLong >= neededLong && sizeLong < currentLong
+                            && (best == null || sizeLong < Math.max(best.width, best.height))) {
+                        best = size;
+                    }
+                }
+                if (best == null) {
+                    return false;
+                }
+                parameters.setPictureSize(best.width, best.height);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Quality the camera encodes still captures at, 1-100.
+     */
+    public void setCaptureJpegQuality(int cameraType, final int jpegQuality) {
+        editParameters(cameraType, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                if (parameters.getJpegQuality() == jpegQuality) {
+                    return false;
+                }
+                parameters.setJpegQuality(jpegQuality);
+                return true;
+            }
+        });
+    }
 
-        if (pictureSize != null) {
-            parameters.setPictureSize(pictureSize.width, pictureSize.height);
-            camera.setParameters(parameters);
+    /**
+     * Back to the quality the camera encoded still captures at when it was opened.
+     */
+    public synchronized void restoreCaptureJpegQuality(int cameraType) {
+        CameraInfoWrapper cameraInfo = _cameraInfos.get(cameraType);
+        if (null == cameraInfo || cameraInfo.defaultJpegQuality <= 0) {
+            return;
         }
+        setCaptureJpegQuality(cameraType, cameraInfo.defaultJpegQuality);
     }
 
     public CamcorderProfile setCaptureVideoQuality(int cameraType, String captureQuality) {
@@ -254,7 +723,7 @@ public class RCTCamera {
         }
 
         Camera.Size videoSize = null;
-        List<Camera.Size> supportedSizes = getSupportedVideoSizes(camera);
+        List<Camera.Size> supportedSizes = getSupportedVideoSizes(cameraType);
         CamcorderProfile cm = null;
         switch (captureQuality) {
             case RCTCameraModule.RCT_CAMERA_CAPTURE_QUALITY_LOW:
@@ -295,54 +764,64 @@ public class RCTCamera {
         return cm;
     }
 
-    public void setTorchMode(int cameraType, int torchMode) {
+    public void setTorchMode(int cameraType, final int torchMode) {
         Camera camera = this.acquireCameraInstance(cameraType);
         if (null == camera) {
             return;
         }
 
-        Camera.Parameters parameters = camera.getParameters();
-        String value = parameters.getFlashMode();
-        switch (torchMode) {
-            case RCTCameraModule.RCT_CAMERA_TORCH_MODE_ON:
-                value = Camera.Parameters.FLASH_MODE_TORCH;
-                break;
-            case RCTCameraModule.RCT_CAMERA_TORCH_MODE_OFF:
-                value = Camera.Parameters.FLASH_MODE_OFF;
-                break;
-        }
-
-        List<String> flashModes = parameters.getSupportedFlashModes();
-        if (flashModes != null && flashModes.contains(value)) {
-            parameters.setFlashMode(value);
-            camera.setParameters(parameters);
-        }
+        editParameters(cameraType, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                String value = parameters.getFlashMode();
+                switch (torchMode) {
+                    case RCTCameraModule.RCT_CAMERA_TORCH_MODE_ON:
+                        value = Camera.Parameters.FLASH_MODE_TORCH;
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_TORCH_MODE_OFF:
+                        value = Camera.Parameters.FLASH_MODE_OFF;
+                        break;
+                }
+
+                List<String> flashModes = parameters.getSupportedFlashModes();
+                if (flashModes != null && flashModes.contains(value)) {
+                    parameters.setFlashMode(value);
+                    return true;
+                }
+                return false;
+            }
+        });
     }
 
-    public void setFlashMode(int cameraType, int flashMode) {
+    public void setFlashMode(int cameraType, final int flashMode) {
         Camera camera = this.acquireCameraInstance(cameraType);
         if (null == camera) {
             return;
         }
 
-        Camera.Parameters parameters = camera.getParameters();
-        String value = parameters.getFlashMode();
-        switch (flashMode) {
-            case RCTCameraModule.RCT_CAMERA_FLASH_MODE_AUTO:
-                value = Camera.Parameters.FLASH_MODE_AUTO;
-                break;
-            case RCTCameraModule.RCT_CAMERA_FLASH_MODE_ON:
-                value = Camera.Parameters.FLASH_MODE_ON;
-                break;
-            case RCTCameraModule.RCT_CAMERA_FLASH_MODE_OFF:
-                value = Camera.Parameters.FLASH_MODE_OFF;
-                break;
-        }
-        List<String> flashModes = parameters.getSupportedFlashModes();
-        if (flashModes != null && flashModes.contains(value)) {
-            parameters.setFlashMode(value);
-            camera.setParameters(parameters);
-        }
+        editParameters(cameraType, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                String value = parameters.getFlashMode();
+                switch (flashMode) {
+                    case RCTCameraModule.RCT_CAMERA_FLASH_MODE_AUTO:
+                        value = Camera.Parameters.FLASH_MODE_AUTO;
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_FLASH_MODE_ON:
+                        value = Camera.Parameters.FLASH_MODE_ON;
+                        break;
+                    case RCTCameraModule.RCT_CAMERA_FLASH_MODE_OFF:
+                        value = Camera.Parameters.FLASH_MODE_OFF;
+                        break;
+                }
+                List<String> flashModes = parameters.getSupportedFlashModes();
+                if (flashModes != null && flashModes.contains(value)) {
+                    parameters.setFlashMode(value);
+                    return true;
+                }
+                return false;
+            }
+        });
     }
 
     public void adjustCameraRotationToDeviceOrientation(int type, int deviceOrientation) {
@@ -360,17 +839,20 @@ public class RCTCamera {
             rotation = (orientation - deviceOrientation * 90 + 360) % 360;
         }
         cameraInfo.rotation = rotation;
-        Camera.Parameters parameters = camera.getParameters();
-        parameters.setRotation(cameraInfo.rotation);
+        final int pictureRotation = rotation;
+        editParameters(type, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                parameters.setRotation(pictureRotation);
+                return true;
+            }
+        });
 
-        try {
-            camera.setParameters(parameters);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // capture follows right away, push this and any pending edit (e.g. capture quality) now
+        commitParameters(type);
     }
 
-    public void adjustPreviewLayout(int type) {
+    public synchronized void adjustPreviewLayout(int type) {
         Camera camera = _cameras.get(type);
         if (null == camera) {
             return;
@@ -388,26 +870,38 @@ public class RCTCamera {
             displayRotation = rotation;
         }
         cameraInfo.rotation = rotation;
+        cameraInfo.displayRotation = displayRotation;
         // TODO: take in account the _orientation prop
 
         setAdjustedDeviceOrientation(rotation);
         camera.setDisplayOrientation(displayRotation);
 
-        Camera.Parameters parameters = camera.getParameters();
-        parameters.setRotation(cameraInfo.rotation);
+        final int pictureRotation = rotation;
+        editParameters(type, new ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters parameters) {
+                parameters.setRotation(pictureRotation);
 
-        // set preview size
-        // defaults to highest resolution available
-        Camera.Size optimalPreviewSize = getBestSize(parameters.getSupportedPreviewSizes(), Integer.MAX_VALUE, Integer.MAX_VALUE);
-        int width = optimalPreviewSize.width;
-        int height = optimalPreviewSize.height;
+                // set preview size
+                // defaults to highest resolution available
+                Camera.Size optimalPreviewSize = getBestSize(parameters.getSupportedPreviewSizes(), Integer.MAX_VALUE, Integer.MAX_VALUE);
+                parameters.setPreviewSize(optimalPreviewSize.width, optimalPreviewSize.height);
+                return true;
+            }
+        });
+        // the preview size has to be in place before the preview starts
+        commitParameters(type);
 
-        parameters.setPreviewSize(width, height);
-        try {
-            camera.setParameters(parameters);
-        } catch (Exception e) {
-            e.printStackTrace();
+        Camera.Parameters parameters = getParameters(type);
+        if (null == parameters) {
+            return;
         }
+        Camera.Size previewSize = parameters.getPreviewSize();
+        int width = previewSize.width;
+        int height = previewSize.height;
+        cameraInfo.previewFrameWidth = width;
+        cameraInfo.previewFrameHeight = height;
+        cameraInfo.previewFrameFormat = parameters.getPreviewFormat();
 
         if (cameraInfo.rotation == 0 || cameraInfo.rotation == 180) {
             cameraInfo.previewWidth = width;
@@ -446,6 +940,13 @@ public class RCTCamera {
     private class CameraInfoWrapper {
         public final Camera.CameraInfo info;
         public int rotation = 0;
+        public int displayRotation = 0;
+        public Camera.Parameters parameters = null;
+        // quality the camera encodes still captures at until told otherwise
+        public int defaultJpegQuality = 0;
+        public int previewFrameWidth = 0;
+        public int previewFrameHeight = 0;
+        public int previewFrameFormat = 0;
         public int previewWidth = -1;
         public int previewHeight = -1;
 
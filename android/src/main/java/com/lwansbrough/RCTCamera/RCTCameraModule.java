@@ -9,7 +9,6 @@ import android.content.ContentValues;
 import android.hardware.Camera;
 import android.media.*;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Environment;
 import android.provider.MediaStore;
 import android.util.Base64;
@@ -68,6 +67,7 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
     public static final String RCT_CAMERA_CAPTURE_QUALITY_1080P = "1080p";
     public static final String RCT_CAMERA_CAPTURE_QUALITY_720P = "720p";
     public static final String RCT_CAMERA_CAPTURE_QUALITY_480P = "480p";
+    public static final String RCT_CAMERA_CAPTURE_ERROR_QUEUE_FULL = "E_CAPTURE_QUEUE_FULL";
     public static final int MEDIA_TYPE_IMAGE = 1;
     public static final int MEDIA_TYPE_VIDEO = 2;
 
@@ -82,6 +82,7 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
     private Promise mRecordingPromise = null;
     private ReadableMap mRecordingOptions;
     private Boolean mSafeToCapture = true;
+    private final CaptureStats _captureStats = new CaptureStats();
 
     public RCTCameraModule(ReactApplicationContext reactContext) {
         super(reactContext);
@@ -525,21 +526,47 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
             RCTCamera.getInstance().setCaptureQuality(options.getInt("type"), options.getString("quality"));
         }
 
+        if (options.hasKey("maxWidth") || options.hasKey("maxHeight")) {
+            RCTCamera.getInstance().setCaptureMaxSize(options.getInt("type"), getMaxWidth(options), getMaxHeight(options));
+        }
+
+        // captures without pixel transforms are passed through as the camera encoded them, at the
+        // requested quality. Others are compressed at that quality once decoded, so the camera
+        // keeps its own quality rather than compressing them twice.
+        if (mayDecode(options)) {
+            RCTCamera.getInstance().restoreCaptureJpegQuality(options.getInt("type"));
+        } else {
+            RCTCamera.getInstance().setCaptureJpegQuality(options.getInt("type"), getJpegQuality(options));
+        }
+
         RCTCamera.getInstance().adjustCameraRotationToDeviceOrientation(options.getInt("type"), deviceOrientation);
         camera.setPreviewCallback(null);
 
+        final Camera.Size pictureSize = RCTCamera.getInstance().readParameters(options.getInt("type"), new RCTCamera.ParametersReader<Camera.Size>() {
+            @Override
+            public Camera.Size read(Camera.Parameters parameters) {
+                return parameters.getPictureSize();
+            }
+        });
+
         Camera.PictureCallback captureCallback = new Camera.PictureCallback() {
             @Override
             public void onPictureTaken(final byte[] data, Camera camera) {
                 camera.stopPreview();
                 camera.startPreview();
 
-                AsyncTask.execute(new Runnable() {
+                long cost = CaptureScheduler.estimateCost(data.length, pictureSize.width, pictureSize.height, mayDecode(options));
+                RCTCamera.getInstance().getCaptureScheduler().submit(new CaptureScheduler.Job() {
                     @Override
                     public void run() {
                         processImage(new MutableImage(data), options, promise);
                     }
-                });
+
+                    @Override
+                    public void reject(String message) {
+                        promise.reject(RCT_CAMERA_CAPTURE_ERROR_QUEUE_FULL, message);
+                    }
+                }, cost, data.length);
 
                 mSafeToCapture = true;
             }
@@ -556,11 +583,58 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
     }
 
     /**
-     * synchronized in order to prevent the user crashing the app by taking many photos and them all being processed
-     * concurrently which would blow the memory (esp on smaller devices), and slow things down.
+     * Whether processing the capture may decode and re-encode it, which is what makes it expensive.
+     * Mirrors transformAndSaveImage: orientation strategies other than pixels only decode when
+     * reorienting without decoding fails, which is not predicted here.
      */
-    private synchronized void processImage(MutableImage mutableImage, ReadableMap options, Promise promise) {
+    private boolean mayDecode(ReadableMap options) {
+        if (options.hasKey("maxWidth") || options.hasKey("maxHeight")) {
+            return true;
+        }
+        boolean shouldMirror = options.hasKey("mirrorImage") && options.getBoolean("mirrorImage");
+        if (!options.hasKey("fixOrientation") || !options.getBoolean("fixOrientation")) {
+            return shouldMirror;
+        }
+        int orientationStrategy = MutableImage.parseOrientationStrategy(
+                options.hasKey("orientationStrategy") ? options.getString("orientationStrategy") : null);
+        // base64 consumers need upright pixels, which a rewritten tag doesn't give them
+        return orientationStrategy == MutableImage.ORIENTATION_PIXELS
+                || (orientationStrategy == MutableImage.ORIENTATION_EXIF
+                && options.getInt("target") == RCT_CAMERA_CAPTURE_TARGET_MEMORY);
+    }
+
+    /**
+     * Runs on the capture scheduler, which bounds how many photos are processed concurrently and the memory they
+     * take, so the user can't crash the app (esp on smaller devices) by taking many photos in a row.
+     */
+    private void processImage(MutableImage mutableImage, ReadableMap options, Promise promise) {
+        long start = System.nanoTime();
+        boolean passthrough = false;
+        try {
+            passthrough = transformAndSaveImage(mutableImage, options, promise);
+        } finally {
+            mutableImage.release();
+            _captureStats.recordImage(mutableImage, passthrough, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return whether the camera's JPEG was saved without decoding it
+     */
+    private boolean transformAndSaveImage(MutableImage mutableImage, ReadableMap options, Promise promise) {
         boolean shouldFixOrientation = options.hasKey("fixOrientation") && options.getBoolean("fixOrientation");
+        boolean shouldMirror = options.hasKey("mirrorImage") && options.getBoolean("mirrorImage");
+        if (shouldFixOrientation) {
+            int orientationStrategy = MutableImage.parseOrientationStrategy(
+                    options.hasKey("orientationStrategy") ? options.getString("orientationStrategy") : null);
+            // base64 consumers get no file to read the orientation tag from, they need upright pixels
+            boolean needsUprightPixels = options.getInt("target") == RCT_CAMERA_CAPTURE_TARGET_MEMORY;
+            if (mutableImage.reorientWithoutDecoding(orientationStrategy, shouldMirror, needsUprightPixels)) {
+                shouldFixOrientation = false;
+                shouldMirror = false;
+            }
+        }
+
         if(shouldFixOrientation) {
             try {
                 mutableImage.fixOrientation();
@@ -569,7 +643,6 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
             }
         }
 
-        boolean shouldMirror = options.hasKey("mirrorImage") && options.getBoolean("mirrorImage");
         if (shouldMirror) {
             try {
                 mutableImage.mirrorImage();
@@ -578,11 +651,21 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
             }
         }
 
-        int jpegQualityPercent = 80;
-        if(options.hasKey("jpegQuality")) {
-            jpegQualityPercent = options.getInt("jpegQuality");
+        mutableImage.resizeToFit(getMaxWidth(options), getMaxHeight(options));
+
+        // orientation, mirror and scaling are applied together, in a single pass over the pixels
+        boolean passthrough = !mutableImage.isTransformed();
+        if (!passthrough) {
+            try {
+                mutableImage.applyTransforms();
+            } catch (MutableImage.ImageMutationFailedException e) {
+                promise.reject("Error transforming image", e);
+                return passthrough;
+            }
         }
 
+        int jpegQualityPercent = getJpegQuality(options);
+
         switch (options.getInt("target")) {
             case RCT_CAMERA_CAPTURE_TARGET_MEMORY:
                 String encoded = mutableImage.toBase64(jpegQualityPercent);
@@ -594,14 +677,14 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
                 File cameraRollFile = getOutputCameraRollFile(MEDIA_TYPE_IMAGE);
                 if (cameraRollFile == null) {
                     promise.reject("Error creating media file.");
-                    return;
+                    return passthrough;
                 }
 
                 try {
                     mutableImage.writeDataToFile(cameraRollFile, options, jpegQualityPercent);
                 } catch (IOException | NullPointerException e) {
                     promise.reject("failed to save image file", e);
-                    return;
+                    return passthrough;
                 }
 
                 addToMediaStore(cameraRollFile.getAbsolutePath());
@@ -614,14 +697,14 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
                 File pictureFile = getOutputMediaFile(MEDIA_TYPE_IMAGE);
                 if (pictureFile == null) {
                     promise.reject("Error creating media file.");
-                    return;
+                    return passthrough;
                 }
 
                 try {
-                    mutableImage.writeDataToFile(pictureFile, options, 85);
+                    mutableImage.writeDataToFile(pictureFile, options, jpegQualityPercent);
                 } catch (IOException e) {
                     promise.reject("failed to save image file", e);
-                    return;
+                    return passthrough;
                 }
 
                 resolveImage(pictureFile, promise, false);
@@ -632,14 +715,14 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
                 File tempFile = getTempMediaFile(MEDIA_TYPE_IMAGE);
                 if (tempFile == null) {
                     promise.reject("Error creating media file.");
-                    return;
+                    return passthrough;
                 }
 
                 try {
-                    mutableImage.writeDataToFile(tempFile, options, 85);
+                    mutableImage.writeDataToFile(tempFile, options, jpegQualityPercent);
                 } catch (IOException e) {
                     promise.reject("failed to save image file", e);
-                    return;
+                    return passthrough;
                 }
 
                 resolveImage(tempFile, promise, false);
@@ -647,6 +730,32 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
                 break;
             }
         }
+        return passthrough;
+    }
+
+    private static int getMaxWidth(ReadableMap options) {
+        return options.hasKey("maxWidth") ? options.getInt("maxWidth") : 0;
+    }
+
+    private static int getMaxHeight(ReadableMap options) {
+        return options.hasKey("maxHeight") ? options.getInt("maxHeight") : 0;
+    }
+
+    /**
+     * JPEG quality of a still capture: the `jpegQuality` option, else 80 in memory and the camera
+     * roll and 85 on disk.
+     */
+    private static int getJpegQuality(ReadableMap options) {
+        if (options.hasKey("jpegQuality")) {
+            return options.getInt("jpegQuality");
+        }
+        switch (options.getInt("target")) {
+            case RCT_CAMERA_CAPTURE_TARGET_DISK:
+            case RCT_CAMERA_CAPTURE_TARGET_TEMP:
+                return 85;
+            default:
+                return 80;
+        }
     }
 
     @ReactMethod
@@ -666,10 +775,30 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
             promise.reject("No camera found.");
             return;
         }
-        List<String> flashModes = camera.getParameters().getSupportedFlashModes();
+        List<String> flashModes = RCTCamera.getInstance().readParameters(options.getInt("type"), new RCTCamera.ParametersReader<List<String>>() {
+            @Override
+            public List<String> read(Camera.Parameters parameters) {
+                return parameters.getSupportedFlashModes();
+            }
+        });
         promise.resolve(null != flashModes && !flashModes.isEmpty());
     }
 
+    @ReactMethod
+    public void getCaptureStats(final Promise promise) {
+        promise.resolve(_captureStats.toMap(RCTCamera.getInstance().getCaptureScheduler()));
+    }
+
+    @ReactMethod
+    public void getBarCodeScannerStats(final Promise promise) {
+        RCTCameraViewFinder viewFinder = RCTCamera.getInstance().getActiveViewFinder();
+        if (null == viewFinder) {
+            promise.reject("No active camera preview.");
+            return;
+        }
+        promise.resolve(viewFinder.getBarCodeScannerStats());
+    }
+
     private File getOutputMediaFile(int type) {
         // Get environment directory type id from requested media type.
         String environmentDirectoryType;
@@ -707,16 +836,33 @@ public class RCTCameraModule extends ReactContextBaseJavaModule
         // Create a media file name
         String fileName = String.format("%s", new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()));
 
+        String prefix;
+        String extension;
         if (type == MEDIA_TYPE_IMAGE) {
-            fileName = String.format("IMG_%s.jpg", fileName);
+            prefix = "IMG_";
+            extension = ".jpg";
         } else if (type == MEDIA_TYPE_VIDEO) {
-            fileName = String.format("VID_%s.mp4", fileName);
+            prefix = "VID_";
+            extension = ".mp4";
         } else {
             Log.e(TAG, "Unsupported media type:" + type);
             return null;
         }
 
-        return new File(String.format("%s%s%s", storageDir.getPath(), File.separator, fileName));
+        // captures are processed concurrently: reserve the file, numbering names taken within the
+        // same second
+        try {
+            for (int i = 0; ; i++) {
+                String suffix = i == 0 ? "" : "_" + i;
+                File file = new File(String.format("%s%s%s%s%s%s", storageDir.getPath(), File.separator, prefix, fileName, suffix, extension));
+                if (file.createNewFile()) {
+                    return file;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "failed to create media file in " + storageDir.getAbsolutePath(), e);
+            return null;
+        }
     }
 
     private File getTempMediaFile(int type) {
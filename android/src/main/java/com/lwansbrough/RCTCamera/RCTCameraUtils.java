@@ -69,4 +69,48 @@ public class RCTCameraUtils {
         focusAreaRect.round(focusAreaRectRounded);
         return new Camera.Area(focusAreaRectRounded, FOCUS_AREA_WEIGHT);
     }
+
+    /**
+     * Rotates a rectangle given in normalized (0..1) image coordinates clockwise by a multiple of
+     * 90 degrees, i.e. returns where the same pixels end up in the rotated image.
+     */
+    protected static RectF rotateNormalizedRect(final RectF rect, final int degrees) {
+        RectF rotated = new RectF(rect);
+        for (int i = ((degrees % 360) + 360) % 360; i >= 90; i -= 90) {
+            // (x, y) -> (1 - y, x)
+            rotated.set(1 - rotated.bottom, rotated.left, 1 - rotated.top, rotated.right);
+        }
+        return rotated;
+    }
+
+    /**
+     * Mirrors a rectangle given in normalized (0..1) image coordinates along the vertical axis.
+     */
+    protected static RectF mirrorNormalizedRect(final RectF rect) {
+        return new RectF(1 - rect.right, rect.top, 1 - rect.left, rect.bottom);
+    }
+
+    /**
+     * Point version of {@link #rotateNormalizedRect(RectF, int)}, rotating the (x, y) pairs of
+     * `points` in place.
+     */
+    protected static void rotateNormalizedPoints(final float[] points, final int degrees) {
+        for (int i = ((degrees % 360) + 360) % 360; i >= 90; i -= 90) {
+            for (int p = 0; p + 1 < points.length; p += 2) {
+                float x = points[p];
+                points[p] = 1 - points[p + 1];
+                points[p + 1] = x;
+            }
+        }
+    }
+
+    /**
+     * Point version of {@link #mirrorNormalizedRect(RectF)}, mirroring the (x, y) pairs of `points`
+     * in place.
+     */
+    protected static void mirrorNormalizedPoints(final float[] points) {
+        for (int p = 0; p + 1 < points.length; p += 2) {
+            points[p] = 1 - points[p];
+        }
+    }
 }
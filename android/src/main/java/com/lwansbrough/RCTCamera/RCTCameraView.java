@@ -5,6 +5,7 @@
 package com.lwansbrough.RCTCamera;
 
 import android.content.Context;
+import android.graphics.RectF;
 import android.hardware.SensorManager;
 import android.view.OrientationEventListener;
 import android.view.ViewGroup;
@@ -26,6 +27,7 @@ public class RCTCameraView extends ViewGroup {
     private String _accessKeyId = "";
     private String _secretKey = "";
     private String _streamName = "";
+    private RectF _scanArea = null;
 
     public RCTCameraView(Context context) {
         super(context);
@@ -135,6 +137,107 @@ public class RCTCameraView extends ViewGroup {
         RCTCamera.getInstance().setBarCodeTypes(types);
     }
 
+    public void setParallelDecode(boolean parallelDecode) {
+        RCTCamera.getInstance().setParallelDecodeEnabled(parallelDecode);
+    }
+
+    public void setBarCodeDedupeTtl(int barCodeDedupeTtl) {
+        RCTCamera.getInstance().setBarCodeDedupeTtl(barCodeDedupeTtl);
+    }
+
+    public void setBarCodeDedupeCapacity(int barCodeDedupeCapacity) {
+        RCTCamera.getInstance().setBarCodeDedupeCapacity(barCodeDedupeCapacity);
+    }
+
+    public void setBarCodeHeartbeatInterval(int barCodeHeartbeatInterval) {
+        RCTCamera.getInstance().setBarCodeHeartbeatInterval(barCodeHeartbeatInterval);
+    }
+
+    public void setBarCodeBatchInterval(int barCodeBatchInterval) {
+        RCTCamera.getInstance().setBarCodeBatchInterval(barCodeBatchInterval);
+    }
+
+    public void setMultiBarcode(boolean multiBarcode) {
+        RCTCamera.getInstance().setMultiBarcodeEnabled(multiBarcode);
+    }
+
+    public void setMultiBarcodeMaxResults(int multiBarcodeMaxResults) {
+        RCTCamera.getInstance().setMultiBarcodeMaxResults(multiBarcodeMaxResults);
+    }
+
+    public void setSharpnessThreshold(float sharpnessThreshold) {
+        RCTCamera.getInstance().setSharpnessThreshold(sharpnessThreshold);
+    }
+
+    public void setSceneChangeThreshold(float sceneChangeThreshold) {
+        RCTCamera.getInstance().setSceneChangeThreshold(sceneChangeThreshold);
+    }
+
+    public void setSceneChangeMaxSkip(int sceneChangeMaxSkip) {
+        RCTCamera.getInstance().setSceneChangeMaxSkip(sceneChangeMaxSkip);
+    }
+
+    public void setRoiTracking(boolean roiTracking) {
+        RCTCamera.getInstance().setRoiTrackingEnabled(roiTracking);
+    }
+
+    public void setRoiTrackingMargin(float roiTrackingMargin) {
+        RCTCamera.getInstance().setRoiTrackingMargin(roiTrackingMargin);
+    }
+
+    public void setScanRate(float scanRate) {
+        RCTCamera.getInstance().setScanRate(scanRate);
+    }
+
+    public void setIdleScanRate(float idleScanRate) {
+        RCTCamera.getInstance().setIdleScanRate(idleScanRate);
+    }
+
+    public void setBinarizer(String binarizer) {
+        RCTCamera.getInstance().setBinarizer(BinarizerStrategy.parse(binarizer));
+    }
+
+    public void setAdaptiveReaders(boolean adaptiveReaders) {
+        RCTCamera.getInstance().setAdaptiveReadersEnabled(adaptiveReaders);
+    }
+
+    public void setTryHarderAfter(int tryHarderAfter) {
+        RCTCamera.getInstance().setTryHarderAfter(tryHarderAfter);
+    }
+
+    public void setInvertedScan(String invertedScan) {
+        RCTCamera.getInstance().setInvertedScan(InvertedScan.parse(invertedScan));
+    }
+
+    public void setPyramidFactor(int pyramidFactor) {
+        RCTCamera.getInstance().setPyramidFactor(pyramidFactor);
+    }
+
+    public void setPyramidEscalateAfter(int pyramidEscalateAfter) {
+        RCTCamera.getInstance().setPyramidEscalateAfter(pyramidEscalateAfter);
+    }
+
+    public void setScanArea(RectF scanArea) {
+        this._scanArea = scanArea;
+        layoutViewFinder();
+    }
+
+    public void setPreviewBufferPoolSize(int previewBufferPoolSize) {
+        RCTCamera.getInstance().setPreviewBufferPoolSize(previewBufferPoolSize);
+    }
+
+    public void setCaptureParallelism(int captureParallelism) {
+        RCTCamera.getInstance().setCaptureParallelism(captureParallelism);
+    }
+
+    public void setCaptureMemoryBudget(long captureMemoryBudget) {
+        RCTCamera.getInstance().setCaptureMemoryBudget(captureMemoryBudget);
+    }
+
+    public void setCaptureQueueDepth(int captureQueueDepth) {
+        RCTCamera.getInstance().setCaptureQueueDepth(captureQueueDepth);
+    }
+
     private boolean setActualDeviceOrientation(Context context) {
         int actualDeviceOrientation = getDeviceOrientation(context);
         if (_actualDeviceOrientation != actualDeviceOrientation) {
@@ -214,6 +317,30 @@ public class RCTCameraView extends ViewGroup {
         int viewFinderPaddingY = (int) ((height - viewfinderHeight) / 2);
 
         this._viewFinder.layout(viewFinderPaddingX, viewFinderPaddingY, viewFinderPaddingX + viewfinderWidth, viewFinderPaddingY + viewfinderHeight);
+        this._viewFinder.setScanArea(getPreviewScanArea(width, height, viewFinderPaddingX, viewFinderPaddingY, viewfinderWidth, viewfinderHeight));
         this.postInvalidate(this.getLeft(), this.getTop(), this.getRight(), this.getBottom());
     }
+
+    /**
+     * Maps the scan area, given in normalized coordinates of this view, to normalized coordinates of
+     * the preview shown by the viewfinder. With aspect fill the viewfinder overflows this view and
+     * with aspect fit it leaves bars around the preview, so the padding computed in layoutViewFinder
+     * has to be taken out. Returns null when the whole frame should be scanned.
+     */
+    private RectF getPreviewScanArea(float width, float height, int paddingX, int paddingY, int viewfinderWidth, int viewfinderHeight) {
+        if (null == _scanArea || viewfinderWidth <= 0 || viewfinderHeight <= 0) {
+            return null;
+        }
+
+        RectF previewArea = new RectF(
+                (_scanArea.left * width - paddingX) / viewfinderWidth,
+                (_scanArea.top * height - paddingY) / viewfinderHeight,
+                (_scanArea.right * width - paddingX) / viewfinderWidth,
+                (_scanArea.bottom * height - paddingY) / viewfinderHeight
+        );
+        if (!previewArea.intersect(0, 0, 1, 1)) {
+            return null;
+        }
+        return previewArea;
+    }
 }
@@ -6,12 +6,12 @@ package com.lwansbrough.RCTCamera;
 
 import android.content.Context;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.SurfaceTexture;
 import android.hardware.Camera;
 import android.view.MotionEvent;
 import android.view.TextureView;
 import android.view.Surface;
-import android.os.AsyncTask;
 import android.util.Size;
 
 import com.facebook.react.bridge.Arguments;
@@ -19,22 +19,21 @@ import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.uimanager.PixelUtil;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.EnumMap;
+import java.util.Map;
 import java.util.EnumSet;
 import java.io.File;
 import java.io.FileWriter;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.BinaryBitmap;
-import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
-import com.google.zxing.common.HybridBinarizer;
 
 /* KINESIS VIDEO IMPORTS */
 
@@ -54,7 +53,7 @@ import com.amazonaws.mobileconnectors.kinesisvideo.mediasource.android.AndroidCa
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.PropertiesFileCredentialsProvider;
 
-class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceTextureListener, Camera.PreviewCallback {
+class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceTextureListener, FrameSource.Listener {
     private int _cameraType;
     private int _captureMode;
     private SurfaceTexture _surfaceTexture;
@@ -69,11 +68,91 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
     private String _secretKey;
     private String _streamName;
 
-    // concurrency lock for barcode scanner to avoid flooding the runtime
-    public static volatile boolean barcodeScannerTaskLock = false;
-
     // reader instance for the barcode scanner
-    private final MultiFormatReader _multiFormatReader = new MultiFormatReader();
+    private final AdaptiveBarcodeReader _barcodeReader = new AdaptiveBarcodeReader();
+    private EnumSet<BarcodeFormat> _decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
+
+    // finds all codes of a frame in one pass, used when multiBarcode is enabled
+    private final MultiBarcodeDecoder _multiBarcodeDecoder = new MultiBarcodeDecoder(_barcodeReader);
+
+    // global histogram and/or hybrid binarization of the serial and parallel paths
+    private final BinarizerStrategy _binarizerStrategy = new BinarizerStrategy();
+    private final BinarizerStrategy.BitmapDecoder _serialDecoder = new BinarizerStrategy.BitmapDecoder() {
+        @Override
+        public Result decode(BinaryBitmap bitmap) throws NotFoundException {
+            return _barcodeReader.decodeWithState(bitmap);
+        }
+    };
+
+    // per symbology family readers, only created when parallel decoding is enabled, by the decode
+    // worker in `_parallelReaderOwner`
+    private ParallelBarcodeReader _parallelReader = null;
+    private Thread _parallelReaderOwner = null;
+
+    // recently reported codes, to avoid re-emitting a code held in front of the camera
+    private final BarcodeResultCache _resultCache = new BarcodeResultCache();
+
+    // coalesces reads into batched events when a batch interval is set
+    private final BarcodeEventBatcher _eventBatcher = new BarcodeEventBatcher();
+
+    // coarse-to-fine decoding of large preview frames
+    private final PyramidDecoder _pyramidDecoder = new PyramidDecoder();
+    private final PyramidDecoder.Reader _sourceReader = new PyramidDecoder.Reader() {
+        @Override
+        public Result decode(LuminanceSource source) throws Exception {
+            return decodeSource(source);
+        }
+    };
+
+    // decodes light-on-dark codes from the inverted luminance
+    private final InvertedScan _invertedScan = new InvertedScan();
+
+    // region around the last code found, tried first on the next frame
+    private final RoiTracker _roiTracker = new RoiTracker();
+
+    // skips frames of a scene that did not change since the last decode
+    private final SceneChangeDetector _sceneChangeDetector = new SceneChangeDetector();
+
+    // skips motion-blurred frames before they reach the readers
+    private final SharpnessGate _sharpnessGate = new SharpnessGate();
+
+    // recycled preview buffers of the camera frame source
+    private final PreviewBufferPool _previewBufferPool = new PreviewBufferPool();
+
+    // delivers the frames to `onFrame` while the camera runs
+    private FrameSource _frameSource = null;
+
+    // area of the preview to scan, in normalized preview coordinates; null scans the whole frame
+    private volatile RectF _scanArea = null;
+
+    // scratch buffer for rotated luminance, only touched by the decode worker
+    private byte[] _luminanceMatrix = null;
+
+    // paces the frames handed to the decode engine
+    private final ScanRateGovernor _scanRateGovernor = new ScanRateGovernor();
+
+    // background worker decoding the most recent preview frame
+    private final BarcodeDecodeEngine _decodeEngine = new BarcodeDecodeEngine(new BarcodeDecodeEngine.Decoder() {
+        @Override
+        public boolean decode(FrameSource.Frame frame) {
+            // skipped frames take next to no time, they would make the governor overestimate the
+            // rate real decodes can sustain
+            if (!acceptFrame(frame)) {
+                return false;
+            }
+            long start = System.nanoTime();
+            boolean found = decodeFrame(frame);
+            _scanRateGovernor.recordDecode(System.nanoTime() - start, found, System.currentTimeMillis());
+            return true;
+        }
+
+        @Override
+        public void release() {
+            if (_parallelReaderOwner == Thread.currentThread()) {
+                shutdownParallelReader();
+            }
+        }
+    });
 
     public RCTCameraViewFinder(Context context, int type) {
         super(context);
@@ -165,6 +244,10 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
         RCTCamera.getInstance().setFlashMode(_cameraType, flashMode);
     }
 
+    public void setScanArea(RectF scanArea) {
+        this._scanArea = scanArea;
+    }
+
     public void setAccessKeyId(String accessKeyId) {
         System.out.println("SETTING MY ACCESS KEY ID: "+accessKeyId);
         this._accessKeyId = accessKeyId;
@@ -195,7 +278,6 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
             _isStarting = true;
             try {
                 _camera = RCTCamera.getInstance().acquireCameraInstance(_cameraType);
-                Camera.Parameters parameters = _camera.getParameters();
 
                 final boolean isCaptureModeStill = (_captureMode == RCTCameraModule.RCT_CAMERA_CAPTURE_MODE_STILL);
                 final boolean isCaptureModeVideo = (_captureMode == RCTCameraModule.RCT_CAMERA_CAPTURE_MODE_VIDEO);
@@ -203,39 +285,47 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
                     throw new RuntimeException("Unsupported capture mode:" + _captureMode);
                 }
 
-                // Set auto-focus. Try to set to continuous picture/video, and fall back to general
-                // auto if available.
-                List<String> focusModes = parameters.getSupportedFocusModes();
-                if (isCaptureModeStill && focusModes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE)) {
-                    parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
-                } else if (isCaptureModeVideo && focusModes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO)) {
-                    parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO);
-                } else if (focusModes.contains(Camera.Parameters.FOCUS_MODE_AUTO)) {
-                    parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
-                }
+                RCTCamera.getInstance().editParameters(_cameraType, new RCTCamera.ParametersEditor() {
+                    @Override
+                    public boolean edit(Camera.Parameters parameters) {
+                        // Set auto-focus. Try to set to continuous picture/video, and fall back to general
+                        // auto if available.
+                        List<String> focusModes = parameters.getSupportedFocusModes();
+                        if (isCaptureModeStill && focusModes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE)) {
+                            parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
+                        } else if (isCaptureModeVideo && focusModes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO)) {
+                            parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO);
+                        } else if (focusModes.contains(Camera.Parameters.FOCUS_MODE_AUTO)) {
+                            parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
+                        }
+
+                        // set picture size
+                        // defaults to max available size
+                        List<Camera.Size> supportedSizes;
+                        if (isCaptureModeStill) {
+                            supportedSizes = parameters.getSupportedPictureSizes();
+                        } else {
+                            supportedSizes = RCTCamera.getInstance().getSupportedVideoSizes(_cameraType);
+                        }
+                        Camera.Size optimalPictureSize = RCTCamera.getInstance().getBestSize(
+                                supportedSizes,
+                                Integer.MAX_VALUE,
+                                Integer.MAX_VALUE
+                        );
+                        parameters.setPictureSize(optimalPictureSize.width, optimalPictureSize.height);
+                        return true;
+                    }
+                });
+                RCTCamera.getInstance().commitParameters(_cameraType);
 
-                // set picture size
-                // defaults to max available size
-                List<Camera.Size> supportedSizes;
-                if (isCaptureModeStill) {
-                    supportedSizes = parameters.getSupportedPictureSizes();
-                } else if (isCaptureModeVideo) {
-                    supportedSizes = RCTCamera.getInstance().getSupportedVideoSizes(_camera);
-                } else {
-                    throw new RuntimeException("Unsupported capture mode:" + _captureMode);
-                }
-                Camera.Size optimalPictureSize = RCTCamera.getInstance().getBestSize(
-                        supportedSizes,
-                        Integer.MAX_VALUE,
-                        Integer.MAX_VALUE
-                );
-                parameters.setPictureSize(optimalPictureSize.width, optimalPictureSize.height);
-
-                _camera.setParameters(parameters);
                 _camera.setPreviewTexture(_surfaceTexture);
                 _camera.startPreview();
-                // send previews to `onPreviewFrame`
-                _camera.setPreviewCallback(this);
+                // send previews to `onFrame`, reusing buffers from the pool
+                _previewBufferPool.setPoolSize(RCTCamera.getInstance().getPreviewBufferPoolSize());
+                _decodeEngine.start();
+                _frameSource = new Camera1FrameSource(_camera, _cameraType, _previewBufferPool);
+                _frameSource.start(this);
+                RCTCamera.getInstance().setActiveViewFinder(this);
             } catch (NullPointerException e) {
                 e.printStackTrace();
             } catch (Exception e) {
@@ -253,11 +343,16 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
             try {
                 if (_camera != null) {
                     _camera.stopPreview();
-                    // stop sending previews to `onPreviewFrame`
-                    _camera.setPreviewCallback(null);
+                    // stop sending previews to `onFrame`
+                    if (_frameSource != null) {
+                        _frameSource.stop();
+                        _frameSource = null;
+                    }
+                    _decodeEngine.stop();
                     RCTCamera.getInstance().releaseCameraInstance(_cameraType);
                     _camera = null;
                 }
+                RCTCamera.getInstance().clearActiveViewFinder(this);
 
             } catch (Exception e) {
                 e.printStackTrace();
@@ -319,7 +414,6 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
      * Initialize the barcode decoder.
      */
     private void initBarcodeReader(List<String> barCodeTypes) {
-        EnumMap<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
         EnumSet<BarcodeFormat> decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
 
         if (barCodeTypes != null) {
@@ -331,94 +425,408 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
             }
         }
 
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
-        _multiFormatReader.setHints(hints);
+        _barcodeReader.setFormats(decodeFormats);
+        _decodeFormats = decodeFormats;
     }
 
     /**
-     * Spawn a barcode reader task if
-     *  - the barcode scanner is enabled (has a onBarCodeRead function)
-     *  - one isn't already running
+     * Decode with the single multi-format reader, or fan out to one reader per symbology family when
+     * parallel decoding is enabled. Runs on the decode engine's worker thread.
+     */
+    private Result decodeSource(LuminanceSource source) throws Exception {
+        _binarizerStrategy.setStrategy(RCTCamera.getInstance().getBinarizer());
+        if (!RCTCamera.getInstance().isParallelDecodeEnabled()) {
+            shutdownParallelReader();
+            return _binarizerStrategy.decode(source, _serialDecoder);
+        }
+
+        if (_parallelReader == null) {
+            _parallelReader = new ParallelBarcodeReader(_decodeFormats);
+            _parallelReaderOwner = Thread.currentThread();
+        }
+        return _parallelReader.decode(source, _binarizerStrategy);
+    }
+
+    private void shutdownParallelReader() {
+        if (_parallelReader != null) {
+            _parallelReader.shutdown();
+            _parallelReader = null;
+            _parallelReaderOwner = null;
+        }
+    }
+
+    /**
+     * Hand the frame to the decode engine if the barcode scanner is enabled (has a onBarCodeRead
+     * function) and the scan rate governor wants a frame now. The engine only keeps the newest
+     * frame, older waiting frames are dropped.
+     *
+     * Frames that are not submitted go straight back to their source.
      *
-     * See {Camera.PreviewCallback}
+     * See {FrameSource.Listener}
      */
-    public void onPreviewFrame(byte[] data, Camera camera) {
-        if (RCTCamera.getInstance().isBarcodeScannerEnabled() && !RCTCameraViewFinder.barcodeScannerTaskLock) {
-            RCTCameraViewFinder.barcodeScannerTaskLock = true;
-            new ReaderAsyncTask(camera, data).execute();
+    @Override
+    public void onFrame(FrameSource.Frame frame) {
+        RCTCamera camera = RCTCamera.getInstance();
+        camera.getFrameProcessors().dispatch(frame);
+
+        _scanRateGovernor.configure(camera.getScanRate(), camera.getIdleScanRate());
+        if (camera.isBarcodeScannerEnabled() && _scanRateGovernor.shouldDecode(_context, System.currentTimeMillis())) {
+            _decodeEngine.submit(frame);
+        } else {
+            frame.release();
         }
     }
 
-    private class ReaderAsyncTask extends AsyncTask<Void, Void, Void> {
-        private byte[] imageData;
-        private final Camera camera;
+    /**
+     * Barcode scanner statistics, see RCTCameraModule.getBarCodeScannerStats.
+     */
+    public WritableMap getBarCodeScannerStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("previewBufferPoolSize", _previewBufferPool.getPoolSize());
+        stats.putInt("previewBufferSize", _previewBufferPool.getBufferSize());
+        stats.putInt("previewBufferAllocations", _previewBufferPool.getAllocationCount());
+        stats.putInt("previewBufferRecycles", _previewBufferPool.getRecycleCount());
+        stats.putDouble("framesSubmitted", _decodeEngine.getSubmittedCount());
+        stats.putDouble("framesDropped", _decodeEngine.getDroppedCount());
+        stats.putDouble("framesDecoded", _decodeEngine.getDecodedCount());
+        stats.putDouble("framesGated", _decodeEngine.getGatedCount());
+        stats.putDouble("resultsSuppressed", _resultCache.getSuppressedCount());
+        stats.putDouble("heartbeats", _resultCache.getHeartbeatCount());
+        stats.putInt("resultCacheSize", _resultCache.size());
+        stats.putDouble("batchesEmitted", _eventBatcher.getBatchCount());
+        stats.putDouble("codesBatched", _eventBatcher.getCodeCount());
+        stats.putDouble("coarseAttempts", _pyramidDecoder.getAttempts(PyramidDecoder.LEVEL_COARSE));
+        stats.putDouble("coarseHits", _pyramidDecoder.getHits(PyramidDecoder.LEVEL_COARSE));
+        stats.putDouble("coarseLatencyMs", _pyramidDecoder.getAverageLatency(PyramidDecoder.LEVEL_COARSE));
+        stats.putDouble("fullAttempts", _pyramidDecoder.getAttempts(PyramidDecoder.LEVEL_FULL));
+        stats.putDouble("fullHits", _pyramidDecoder.getHits(PyramidDecoder.LEVEL_FULL));
+        stats.putDouble("fullLatencyMs", _pyramidDecoder.getAverageLatency(PyramidDecoder.LEVEL_FULL));
+        stats.putDouble("scanRateTarget", _scanRateGovernor.getTargetRate());
+        stats.putDouble("scanRateLive", _scanRateGovernor.getLiveRate());
+        stats.putDouble("decodeLatencyMs", _scanRateGovernor.getAverageLatency());
+        stats.putDouble("batteryLevel", _scanRateGovernor.getBatteryLevel());
+        stats.putInt("thermalStatus", _scanRateGovernor.getThermalStatus());
+        stats.putDouble("sceneDifference", _sceneChangeDetector.getLastDifference());
+        stats.putDouble("framesSkippedStatic", _sceneChangeDetector.getSkippedCount());
+        stats.putDouble("framesChanged", _sceneChangeDetector.getChangedCount());
+        stats.putDouble("sharpnessScore", _sharpnessGate.getLastScore());
+        stats.putDouble("sharpnessBaseline", _sharpnessGate.getBaseline());
+        stats.putDouble("sharpnessEvaluated", _sharpnessGate.getEvaluatedCount());
+        stats.putDouble("framesSkippedBlurry", _sharpnessGate.getSkippedCount());
+        stats.putDouble("trackedAttempts", _roiTracker.getAttempts());
+        stats.putDouble("trackedHits", _roiTracker.getHits());
+        stats.putDouble("globalBinarizerAttempts", _binarizerStrategy.getAttempts(BinarizerStrategy.PASS_GLOBAL));
+        stats.putDouble("globalBinarizerHits", _binarizerStrategy.getHits(BinarizerStrategy.PASS_GLOBAL));
+        stats.putDouble("globalBinarizerLatencyMs", _binarizerStrategy.getAverageLatency(BinarizerStrategy.PASS_GLOBAL));
+        stats.putDouble("hybridBinarizerAttempts", _binarizerStrategy.getAttempts(BinarizerStrategy.PASS_HYBRID));
+        stats.putDouble("hybridBinarizerHits", _binarizerStrategy.getHits(BinarizerStrategy.PASS_HYBRID));
+        stats.putDouble("hybridBinarizerLatencyMs", _binarizerStrategy.getAverageLatency(BinarizerStrategy.PASS_HYBRID));
+        WritableMap formatHits = Arguments.createMap();
+        for (Map.Entry<BarcodeFormat, Long> entry : _barcodeReader.getFormatHits().entrySet()) {
+            formatHits.putDouble(entry.getKey().toString(), entry.getValue());
+        }
+        stats.putMap("formatHits", formatHits);
+        stats.putDouble("nearMisses", _barcodeReader.getNearMissCount());
+        stats.putDouble("tryHarderAttempts", _barcodeReader.getTryHarderAttempts());
+        stats.putDouble("tryHarderHits", _barcodeReader.getTryHarderHits());
+        stats.putDouble("invertedAttempts", _invertedScan.getAttempts());
+        stats.putDouble("invertedHits", _invertedScan.getHits());
+        stats.putDouble("invertedLatencyMs", _invertedScan.getAverageLatency());
+        stats.putDouble("multiAttempts", _multiBarcodeDecoder.getAttempts());
+        stats.putDouble("multiResults", _multiBarcodeDecoder.getResultCount());
+        stats.putDouble("multiLatencyMs", _multiBarcodeDecoder.getAverageLatency());
+        stats.putArray("frameProcessors", RCTCamera.getInstance().getFrameProcessors().getStats());
+        return stats;
+    }
 
-        ReaderAsyncTask(Camera camera, byte[] imageData) {
-            this.camera = camera;
-            this.imageData = imageData;
+    /**
+     * Whether the frame is worth decoding: the scene changed since the last decoded frame and the
+     * frame is sharp enough. Runs on the decode engine's worker thread.
+     */
+    private boolean acceptFrame(FrameSource.Frame frame) {
+        RCTCamera camera = RCTCamera.getInstance();
+        long now = System.currentTimeMillis();
+        _sceneChangeDetector.configure(camera.getSceneChangeThreshold(), camera.getSceneChangeMaxSkip());
+        if (!_sceneChangeDetector.hasChanged(frame.data, frame.width, frame.height, now)) {
+            return false;
         }
 
-        @Override
-        protected Void doInBackground(Void... ignored) {
-            if (isCancelled()) {
-                return null;
+        _sharpnessGate.configure(camera.getSharpnessThreshold());
+        if (!_sharpnessGate.accept(frame.data, frame.width, frame.height)) {
+            return false;
+        }
+        _sceneChangeDetector.commit(now);
+        return true;
+    }
+
+    /**
+     * Decode a single preview frame and emit a `CameraBarCodeReadAndroid` event on success, or a
+     * `CameraBarCodesReadAndroid` event with every code found when multiBarcode is enabled.
+     * Runs on the decode engine's worker thread.
+     *
+     * @return whether a code was found
+     */
+    private boolean decodeFrame(FrameSource.Frame frame) {
+        byte[] imageData = frame.data;
+        int width = frame.width;
+        int height = frame.height;
+        RCTCamera camera = RCTCamera.getInstance();
+
+        // rotate for zxing as the frame source says; the luminance source maps indices instead of copying
+        int rotation = frame.rotation;
+
+        Rect crop = getScanCrop(width, height, rotation);
+        _pyramidDecoder.configure(camera.getPyramidFactor(), camera.getPyramidEscalateAfter());
+        _barcodeReader.configure(camera.isAdaptiveReadersEnabled(), camera.getTryHarderAfter());
+        _resultCache.configure(camera.getBarCodeDedupeTtl(), camera.getBarCodeHeartbeatInterval(), camera.getBarCodeDedupeCapacity());
+        _invertedScan.setMode(camera.getInvertedScan());
+        boolean inverted = _invertedScan.nextFrameInverted();
+
+        if (camera.isMultiBarcodeEnabled()) {
+            // symbols may sit anywhere in the frame: always a single full resolution pass
+            RotatedLuminanceSource source = createSource(imageData, width, height, rotation, crop, inverted);
+            Result[] results = null;
+            try {
+                results = _multiBarcodeDecoder.decode(source, camera.getMultiBarcodeMaxResults());
+                emitBarCodesRead(results, crop, width, height, rotation);
+            } catch (Throwable t) {
+                // meh
+            } finally {
+                recycleSource(source);
+            }
+            return results != null;
+        }
+
+        // look where the previous code was first, then fall back to the whole scan area
+        Result result = null;
+        Rect resultCrop = crop;
+        Rect region = null;
+        if (camera.isRoiTrackingEnabled()) {
+            region = _roiTracker.getRegion(crop, rotation);
+        } else {
+            _roiTracker.reset();
+        }
+        if (region != null) {
+            result = decodeCrop(imageData, width, height, rotation, region, false, inverted);
+            if (result != null) {
+                resultCrop = region;
+            }
+        }
+        if (result == null) {
+            result = decodeCrop(imageData, width, height, rotation, crop, true, inverted);
+        }
+        if (result == null && !inverted && _invertedScan.retryInverted()) {
+            result = decodeCrop(imageData, width, height, rotation, crop, true, true);
+        }
+        if (camera.isRoiTrackingEnabled()) {
+            _roiTracker.update(result, resultCrop, crop, rotation, camera.getRoiTrackingMargin(), region != null);
+        }
+
+        if (result != null) {
+            try {
+                emitBarCodeRead(result, resultCrop, width, height, rotation);
+            } catch (Throwable t) {
+                // meh
             }
+        }
+        return result != null;
+    }
 
-            Camera.Size size = camera.getParameters().getPreviewSize();
+    /**
+     * Decode one crop of the frame, through the pyramid or straight at full resolution, optionally
+     * with inverted luminance. Returns null if nothing was found.
+     */
+    private Result decodeCrop(byte[] imageData, int width, int height, int rotation, Rect crop, boolean pyramid, boolean inverted) {
+        long start = System.nanoTime();
+        RotatedLuminanceSource source = createSource(imageData, width, height, rotation, crop, inverted);
+        Result result = null;
+        try {
+            if (pyramid) {
+                result = _pyramidDecoder.decode(source, _sourceReader, _decodeFormats.contains(BarcodeFormat.QR_CODE));
+            } else {
+                result = decodeSource(source);
+            }
+        } catch (Throwable t) {
+            // nothing found
+        } finally {
+            recycleSource(source);
+        }
 
-            int width = size.width;
-            int height = size.height;
+        if (inverted) {
+            _invertedScan.record(System.nanoTime() - start, result != null);
+        }
+        return result;
+    }
 
-            // rotate for zxing if orientation is portrait
-            if (RCTCamera.getInstance().getActualDeviceOrientation() == 0) {
-                byte[] rotated = new byte[imageData.length];
-                for (int y = 0; y < height; y++) {
-                    for (int x = 0; x < width; x++) {
-                        rotated[x * height + height - y - 1] = imageData[x + y * width];
-                    }
-                }
-                width = size.height;
-                height = size.width;
-                imageData = rotated;
+    private RotatedLuminanceSource createSource(byte[] imageData, int width, int height, int rotation, Rect crop, boolean inverted) {
+        return new RotatedLuminanceSource(imageData, width, height, rotation,
+                crop.left, crop.top, crop.width(), crop.height(), inverted, _luminanceMatrix);
+    }
+
+    private void recycleSource(RotatedLuminanceSource source) {
+        _barcodeReader.reset();
+        _luminanceMatrix = source.getMatrixBuffer();
+    }
+
+    /**
+     * Emit a `CameraBarCodeReadAndroid` event for a decoded code, or only a
+     * `CameraBarCodeVisibleAndroid` heartbeat if the same code was reported moments ago. With a
+     * batch interval set the code is queued for the next `CameraBarCodesReadAndroid` batch instead.
+     */
+    private void emitBarCodeRead(Result result, Rect crop, int width, int height, int rotation) {
+        WritableMap event = checkBarCodeRead(result);
+        if (event == null) {
+            return;
+        }
+
+        int batchInterval = RCTCamera.getInstance().getBarCodeBatchInterval();
+        if (batchInterval > 0) {
+            event.putArray("bounds", getViewBounds(result.getResultPoints(), crop, width, height, rotation));
+            _eventBatcher.add(event, batchInterval);
+            return;
+        }
+
+        WritableArray resultPoints = Arguments.createArray();
+        ResultPoint[] points = result.getResultPoints();
+        if(points != null) {
+            for (ResultPoint point : points) {
+                // report points relative to the whole (rotated) frame, not the scanned crop
+                WritableMap newPoint = Arguments.createMap();
+                newPoint.putString("x", String.valueOf(point.getX() + crop.left));
+                newPoint.putString("y", String.valueOf(point.getY() + crop.top));
+                resultPoints.pushMap(newPoint);
             }
+        }
 
-            try {
-                PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(imageData, width, height, 0, 0, width, height, false);
-                BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-                Result result = _multiFormatReader.decodeWithState(bitmap);
-
-                ReactContext reactContext = RCTCameraModule.getReactContextSingleton();
-                WritableMap event = Arguments.createMap();
-                WritableArray resultPoints = Arguments.createArray();
-                ResultPoint[] points = result.getResultPoints();
-                if(points != null) {
-                    for (ResultPoint point : points) {
-                        WritableMap newPoint = Arguments.createMap();
-                        newPoint.putString("x", String.valueOf(point.getX()));
-                        newPoint.putString("y", String.valueOf(point.getY()));
-                        resultPoints.pushMap(newPoint);
-                    }
-                }
+        event.putArray("bounds", resultPoints);
+        ReactContext reactContext = RCTCameraModule.getReactContextSingleton();
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit("CameraBarCodeReadAndroid", event);
+    }
 
-                event.putArray("bounds", resultPoints);
-                event.putString("data", result.getText());
-                event.putString("type", result.getBarcodeFormat().toString());
-                reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit("CameraBarCodeReadAndroid", event);
+    /**
+     * Emit all codes found in one frame as a single `CameraBarCodesReadAndroid` event, or queue them
+     * for the next batch when a batch interval is set. Codes reported moments ago are left out.
+     */
+    private void emitBarCodesRead(Result[] results, Rect crop, int width, int height, int rotation) {
+        int batchInterval = RCTCamera.getInstance().getBarCodeBatchInterval();
+        WritableArray codes = Arguments.createArray();
+        int count = 0;
+        for (Result result : results) {
+            WritableMap code = checkBarCodeRead(result);
+            if (code == null) {
+                continue;
+            }
+            code.putArray("bounds", getViewBounds(result.getResultPoints(), crop, width, height, rotation));
+            if (batchInterval > 0) {
+                _eventBatcher.add(code, batchInterval);
+            } else {
+                codes.pushMap(code);
+                count++;
+            }
+        }
 
-            } catch (Throwable t) {
-                // meh
-            } finally {
-                _multiFormatReader.reset();
-                RCTCameraViewFinder.barcodeScannerTaskLock = false;
-                return null;
+        if (count > 0) {
+            _eventBatcher.send(codes, count);
+        }
+    }
+
+    /**
+     * Event body for a decoded code, or null if it was suppressed or only reported through a
+     * `CameraBarCodeVisibleAndroid` heartbeat.
+     */
+    private WritableMap checkBarCodeRead(Result result) {
+        int decision = _resultCache.check(result.getBarcodeFormat(), result.getText(), System.currentTimeMillis());
+        if (decision == BarcodeResultCache.SUPPRESS) {
+            return null;
+        }
+
+        WritableMap event = Arguments.createMap();
+        event.putString("data", result.getText());
+        event.putString("type", result.getBarcodeFormat().toString());
+
+        if (decision == BarcodeResultCache.HEARTBEAT) {
+            ReactContext reactContext = RCTCameraModule.getReactContextSingleton();
+            reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit("CameraBarCodeVisibleAndroid", event);
+            return null;
+        }
+        return event;
+    }
+
+    /**
+     * Maps result points from the cropped, rotated frame they were decoded in to layout coordinates
+     * of the parent RCTCameraView, as a flat [x0, y0, x1, y1, ...] array.
+     */
+    private WritableArray getViewBounds(ResultPoint[] points, Rect crop, int width, int height, int rotation) {
+        WritableArray bounds = Arguments.createArray();
+        if (points == null) {
+            return bounds;
+        }
+
+        int rotatedWidth = rotation % 180 == 0 ? width : height;
+        int rotatedHeight = rotation % 180 == 0 ? height : width;
+        float[] coordinates = new float[points.length * 2];
+        int count = 0;
+        for (ResultPoint point : points) {
+            if (point == null) {
+                continue;
             }
+            coordinates[count++] = (point.getX() + crop.left) / rotatedWidth;
+            coordinates[count++] = (point.getY() + crop.top) / rotatedHeight;
+        }
+
+        // decoded frame -> sensor frame -> on-screen preview, all normalized
+        RCTCameraUtils.rotateNormalizedPoints(coordinates, 360 - rotation);
+        RCTCamera.getInstance().sensorPointsToPreviewPoints(_cameraType, coordinates);
+
+        // the viewfinder is laid out within RCTCameraView, see RCTCameraView.layoutViewFinder
+        for (int i = 0; i + 1 < count; i += 2) {
+            bounds.pushDouble(PixelUtil.toDIPFromPixel(getLeft() + coordinates[i] * getWidth()));
+            bounds.pushDouble(PixelUtil.toDIPFromPixel(getTop() + coordinates[i + 1] * getHeight()));
         }
+        return bounds;
+    }
+
+    /**
+     * Crop rectangle of the scan area, in pixels of the frame rotated clockwise by `rotation`.
+     */
+    private Rect getScanCrop(int width, int height, int rotation) {
+        int rotatedWidth = rotation % 180 == 0 ? width : height;
+        int rotatedHeight = rotation % 180 == 0 ? height : width;
+        Rect crop = new Rect(0, 0, rotatedWidth, rotatedHeight);
+
+        RectF scanArea = _scanArea;
+        if (scanArea == null) {
+            return crop;
+        }
+
+        RectF sensorArea = RCTCamera.getInstance().previewRectToSensorRect(_cameraType, scanArea);
+        RectF rotatedArea = RCTCameraUtils.rotateNormalizedRect(sensorArea, rotation);
+        Rect scanCrop = new Rect();
+        new RectF(
+                rotatedArea.left * rotatedWidth,
+                rotatedArea.top * rotatedHeight,
+                rotatedArea.right * rotatedWidth,
+                rotatedArea.bottom * rotatedHeight
+        ).roundOut(scanCrop);
+
+        if (!scanCrop.intersect(crop) || scanCrop.isEmpty()) {
+            return crop;
+        }
+        return scanCrop;
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         // Get the pointer ID
-        Camera.Parameters params = _camera.getParameters();
+        Boolean zoomSupported = RCTCamera.getInstance().readParameters(_cameraType, new RCTCamera.ParametersReader<Boolean>() {
+            @Override
+            public Boolean read(Camera.Parameters parameters) {
+                return parameters.isZoomSupported();
+            }
+        });
+        if (null == _camera || null == zoomSupported) {
+            return true;
+        }
         int action = event.getAction();
 
 
@@ -426,35 +834,47 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
             // handle multi-touch events
             if (action == MotionEvent.ACTION_POINTER_DOWN) {
                 mFingerSpacing = getFingerSpacing(event);
-            } else if (action == MotionEvent.ACTION_MOVE && params.isZoomSupported()) {
+            } else if (action == MotionEvent.ACTION_MOVE && zoomSupported) {
                 _camera.cancelAutoFocus();
-                handleZoom(event, params);
+                handleZoom(event);
             }
         } else {
             // handle single touch events
             if (action == MotionEvent.ACTION_UP) {
-                handleFocus(event, params);
+                handleFocus(event);
             }
         }
         return true;
     }
 
-    private void handleZoom(MotionEvent event, Camera.Parameters params) {
-        int maxZoom = params.getMaxZoom();
-        int zoom = params.getZoom();
-        float newDist = getFingerSpacing(event);
-        if (newDist > mFingerSpacing) {
-            //zoom in
-            if (zoom < maxZoom)
-                zoom++;
-        } else if (newDist < mFingerSpacing) {
-            //zoom out
-            if (zoom > 0)
-                zoom--;
-        }
+    /**
+     * Zoom steps of consecutive move events are coalesced into one parameter update per frame.
+     */
+    private void handleZoom(MotionEvent event) {
+        final float newDist = getFingerSpacing(event);
+        final float oldDist = mFingerSpacing;
         mFingerSpacing = newDist;
-        params.setZoom(zoom);
-        _camera.setParameters(params);
+        RCTCamera.getInstance().editParameters(_cameraType, new RCTCamera.ParametersEditor() {
+            @Override
+            public boolean edit(Camera.Parameters params) {
+                int maxZoom = params.getMaxZoom();
+                int zoom = params.getZoom();
+                if (newDist > oldDist) {
+                    //zoom in
+                    if (zoom < maxZoom)
+                        zoom++;
+                } else if (newDist < oldDist) {
+                    //zoom out
+                    if (zoom > 0)
+                        zoom--;
+                }
+                if (zoom == params.getZoom()) {
+                    return false;
+                }
+                params.setZoom(zoom);
+                return true;
+            }
+        });
     }
 
     /**
@@ -465,12 +885,23 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
      * {@link #startCamera()}. However, this makes sense - after the user has initiated any
      * specific focus intent, we shouldn't be refocusing and overriding their request!
      */
-    public void handleFocus(MotionEvent event, Camera.Parameters params) {
-        List<String> supportedFocusModes = params.getSupportedFocusModes();
+    public void handleFocus(MotionEvent event) {
+        List<String> supportedFocusModes = RCTCamera.getInstance().readParameters(_cameraType, new RCTCamera.ParametersReader<List<String>>() {
+            @Override
+            public List<String> read(Camera.Parameters parameters) {
+                return parameters.getSupportedFocusModes();
+            }
+        });
         if (supportedFocusModes != null && supportedFocusModes.contains(Camera.Parameters.FOCUS_MODE_AUTO)) {
             // Ensure focus areas are enabled. If max num focus areas is 0, then focus area is not
             // supported, so we cannot do anything here.
-            if (params.getMaxNumFocusAreas() == 0) {
+            Integer maxNumFocusAreas = RCTCamera.getInstance().readParameters(_cameraType, new RCTCamera.ParametersReader<Integer>() {
+                @Override
+                public Integer read(Camera.Parameters parameters) {
+                    return parameters.getMaxNumFocusAreas();
+                }
+            });
+            if (null == maxNumFocusAreas || maxNumFocusAreas == 0) {
                 return;
             }
 
@@ -486,21 +917,27 @@ class RCTCameraViewFinder extends TextureView implements TextureView.SurfaceText
                 return;
             }
 
-            // Set focus mode to auto.
-            params.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
             // Set focus area.
             final ArrayList<Camera.Area> focusAreas = new ArrayList<Camera.Area>();
             focusAreas.add(focusAreaFromMotionEvent);
-            params.setFocusAreas(focusAreas);
-
-            // Also set metering area if enabled. If max num metering areas is 0, then metering area
-            // is not supported. We can usually safely omit this anyway, though.
-            if (params.getMaxNumMeteringAreas() > 0) {
-                params.setMeteringAreas(focusAreas);
-            }
+            RCTCamera.getInstance().editParameters(_cameraType, new RCTCamera.ParametersEditor() {
+                @Override
+                public boolean edit(Camera.Parameters params) {
+                    // Set focus mode to auto.
+                    params.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
+                    params.setFocusAreas(focusAreas);
+
+                    // Also set metering area if enabled. If max num metering areas is 0, then metering area
+                    // is not supported. We can usually safely omit this anyway, though.
+                    if (params.getMaxNumMeteringAreas() > 0) {
+                        params.setMeteringAreas(focusAreas);
+                    }
+                    return true;
+                }
+            });
 
             // Set parameters before starting auto-focus.
-            _camera.setParameters(params);
+            RCTCamera.getInstance().commitParameters(_cameraType);
 
             // Start auto-focus now that focus area has been set. If successful, then can cancel
             // it afterwards. Wrap in try-catch to avoid crashing on merely autoFocus fails.
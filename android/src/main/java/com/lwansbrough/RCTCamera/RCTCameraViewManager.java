@@ -1,8 +1,11 @@
 package com.lwansbrough.RCTCamera;
 
+import android.graphics.RectF;
 import android.support.annotation.Nullable;
 
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.uimanager.*;
 import com.facebook.react.uimanager.annotations.ReactProp;
 
@@ -87,6 +90,158 @@ public class RCTCameraViewManager extends ViewGroupManager<RCTCameraView> {
         view.setBarCodeTypes(result);
     }
 
+    @ReactProp(name = "barCodeDedupeTtl")
+    public void setBarCodeDedupeTtl(RCTCameraView view, int barCodeDedupeTtl) {
+        view.setBarCodeDedupeTtl(barCodeDedupeTtl);
+    }
+
+    @ReactProp(name = "barCodeDedupeCapacity", defaultInt = BarcodeResultCache.DEFAULT_CAPACITY)
+    public void setBarCodeDedupeCapacity(RCTCameraView view, int barCodeDedupeCapacity) {
+        view.setBarCodeDedupeCapacity(barCodeDedupeCapacity);
+    }
+
+    @ReactProp(name = "barCodeHeartbeatInterval")
+    public void setBarCodeHeartbeatInterval(RCTCameraView view, int barCodeHeartbeatInterval) {
+        view.setBarCodeHeartbeatInterval(barCodeHeartbeatInterval);
+    }
+
+    @ReactProp(name = "barCodeBatchInterval")
+    public void setBarCodeBatchInterval(RCTCameraView view, int barCodeBatchInterval) {
+        view.setBarCodeBatchInterval(barCodeBatchInterval);
+    }
+
+    @ReactProp(name = "multiBarcode")
+    public void setMultiBarcode(RCTCameraView view, boolean multiBarcode) {
+        view.setMultiBarcode(multiBarcode);
+    }
+
+    @ReactProp(name = "multiBarcodeMaxResults", defaultInt = MultiBarcodeDecoder.DEFAULT_MAX_RESULTS)
+    public void setMultiBarcodeMaxResults(RCTCameraView view, int multiBarcodeMaxResults) {
+        view.setMultiBarcodeMaxResults(multiBarcodeMaxResults);
+    }
+
+    @ReactProp(name = "sharpnessThreshold")
+    public void setSharpnessThreshold(RCTCameraView view, float sharpnessThreshold) {
+        view.setSharpnessThreshold(sharpnessThreshold);
+    }
+
+    @ReactProp(name = "sceneChangeThreshold")
+    public void setSceneChangeThreshold(RCTCameraView view, float sceneChangeThreshold) {
+        view.setSceneChangeThreshold(sceneChangeThreshold);
+    }
+
+    @ReactProp(name = "sceneChangeMaxSkip", defaultInt = SceneChangeDetector.DEFAULT_MAX_SKIP_INTERVAL)
+    public void setSceneChangeMaxSkip(RCTCameraView view, int sceneChangeMaxSkip) {
+        view.setSceneChangeMaxSkip(sceneChangeMaxSkip);
+    }
+
+    @ReactProp(name = "roiTracking")
+    public void setRoiTracking(RCTCameraView view, boolean roiTracking) {
+        view.setRoiTracking(roiTracking);
+    }
+
+    @ReactProp(name = "roiTrackingMargin", defaultFloat = RoiTracker.DEFAULT_MARGIN)
+    public void setRoiTrackingMargin(RCTCameraView view, float roiTrackingMargin) {
+        view.setRoiTrackingMargin(roiTrackingMargin);
+    }
+
+    @ReactProp(name = "scanRate")
+    public void setScanRate(RCTCameraView view, float scanRate) {
+        view.setScanRate(scanRate);
+    }
+
+    @ReactProp(name = "idleScanRate", defaultFloat = ScanRateGovernor.DEFAULT_IDLE_RATE)
+    public void setIdleScanRate(RCTCameraView view, float idleScanRate) {
+        view.setIdleScanRate(idleScanRate);
+    }
+
+    @ReactProp(name = "binarizer")
+    public void setBinarizer(RCTCameraView view, String binarizer) {
+        view.setBinarizer(binarizer);
+    }
+
+    @ReactProp(name = "adaptiveReaders")
+    public void setAdaptiveReaders(RCTCameraView view, boolean adaptiveReaders) {
+        view.setAdaptiveReaders(adaptiveReaders);
+    }
+
+    @ReactProp(name = "tryHarderAfter")
+    public void setTryHarderAfter(RCTCameraView view, int tryHarderAfter) {
+        view.setTryHarderAfter(tryHarderAfter);
+    }
+
+    @ReactProp(name = "invertedScan")
+    public void setInvertedScan(RCTCameraView view, String invertedScan) {
+        view.setInvertedScan(invertedScan);
+    }
+
+    @ReactProp(name = "parallelDecode")
+    public void setParallelDecode(RCTCameraView view, boolean parallelDecode) {
+        view.setParallelDecode(parallelDecode);
+    }
+
+    @ReactProp(name = "pyramidFactor", defaultInt = 1)
+    public void setPyramidFactor(RCTCameraView view, int pyramidFactor) {
+        view.setPyramidFactor(pyramidFactor);
+    }
+
+    @ReactProp(name = "pyramidEscalateAfter", defaultInt = PyramidDecoder.DEFAULT_ESCALATE_AFTER)
+    public void setPyramidEscalateAfter(RCTCameraView view, int pyramidEscalateAfter) {
+        view.setPyramidEscalateAfter(pyramidEscalateAfter);
+    }
+
+    /**
+     * An incomplete or empty area scans the whole view, an area reaching outside of the view is
+     * clamped to it.
+     */
+    @ReactProp(name = "scanArea")
+    public void setScanArea(RCTCameraView view, @Nullable ReadableMap scanArea) {
+        if (scanArea == null || !isNumber(scanArea, "x") || !isNumber(scanArea, "y")
+                || !isNumber(scanArea, "width") || !isNumber(scanArea, "height")) {
+            view.setScanArea(null);
+            return;
+        }
+        float x = (float) scanArea.getDouble("x");
+        float y = (float) scanArea.getDouble("y");
+        float width = (float) scanArea.getDouble("width");
+        float height = (float) scanArea.getDouble("height");
+        RectF area = new RectF(clampFraction(x), clampFraction(y), clampFraction(x + width), clampFraction(y + height));
+        // also rejects NaN coordinates
+        if (!(area.right > area.left && area.bottom > area.top)) {
+            view.setScanArea(null);
+            return;
+        }
+        view.setScanArea(area);
+    }
+
+    private static boolean isNumber(ReadableMap map, String key) {
+        return map.hasKey(key) && map.getType(key) == ReadableType.Number;
+    }
+
+    private static float clampFraction(float value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    @ReactProp(name = "previewBufferPoolSize", defaultInt = PreviewBufferPool.DEFAULT_POOL_SIZE)
+    public void setPreviewBufferPoolSize(RCTCameraView view, int previewBufferPoolSize) {
+        view.setPreviewBufferPoolSize(previewBufferPoolSize);
+    }
+
+    @ReactProp(name = "captureParallelism", defaultInt = 0)
+    public void setCaptureParallelism(RCTCameraView view, int captureParallelism) {
+        view.setCaptureParallelism(captureParallelism);
+    }
+
+    @ReactProp(name = "captureMemoryBudget", defaultDouble = 0)
+    public void setCaptureMemoryBudget(RCTCameraView view, double captureMemoryBudget) {
+        view.setCaptureMemoryBudget((long) captureMemoryBudget);
+    }
+
+    @ReactProp(name = "captureQueueDepth", defaultInt = CaptureScheduler.DEFAULT_MAX_QUEUE_DEPTH)
+    public void setCaptureQueueDepth(RCTCameraView view, int captureQueueDepth) {
+        view.setCaptureQueueDepth(captureQueueDepth);
+    }
+
     @ReactProp(name = "accessKeyId")
     public void setAccessKeyId(RCTCameraView view, String accessKeyId) {
         view.setAccessKeyId(accessKeyId);
@@ -0,0 +1,111 @@
+package com.lwansbrough.RCTCamera;
+
+import android.graphics.Rect;
+
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+/**
+ * Remembers where the last code was found so the next frame can first be decoded in a small region
+ * around it, which is much faster than a search of the whole frame while a code moves steadily
+ * through the view (e.g. a tote on a conveyor).
+ *
+ * The region is the bounding box of the result points, grown on every side by `margin` times its
+ * larger side, in pixels of the rotated frame. A miss in the region drops it until the next hit.
+ */
+class RoiTracker {
+    public static final float DEFAULT_MARGIN = 0.5f;
+
+    // 1D results are a line, make sure the region is still tall enough to scan a few rows
+    private static final int MIN_SIZE = 32;
+
+    private Rect _region = null;
+    private int _rotation = 0;
+
+    private long _attempts = 0;
+    private long _hits = 0;
+
+    /**
+     * Region to try first within the given scan crop, or null if nothing is being tracked.
+     */
+    public synchronized Rect getRegion(Rect scanCrop, int rotation) {
+        if (_region == null || _rotation != rotation) {
+            return null;
+        }
+        Rect region = new Rect(_region);
+        if (!region.intersect(scanCrop) || region.isEmpty()) {
+            _region = null;
+            return null;
+        }
+        return region;
+    }
+
+    /**
+     * Records the outcome of a frame.
+     *
+     * @param result  the decoded code, null on a miss
+     * @param crop    the rectangle the result was decoded in, its points are relative to it
+     * @param tracked whether the result comes from the tracked region
+     */
+    public synchronized void update(Result result, Rect crop, Rect scanCrop, int rotation, float margin, boolean tracked) {
+        if (tracked) {
+            _attempts++;
+            if (result != null) {
+                _hits++;
+            }
+        }
+
+        ResultPoint[] points = result == null ? null : result.getResultPoints();
+        if (points == null || points.length == 0) {
+            _region = null;
+            return;
+        }
+
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (ResultPoint point : points) {
+            if (point == null) {
+                continue;
+            }
+            left = Math.min(left, point.getX());
+            top = Math.min(top, point.getY());
+            right = Math.max(right, point.getX());
+            bottom = Math.max(bottom, point.getY());
+        }
+        if (left > right) {
+            _region = null;
+            return;
+        }
+
+        float grow = Math.max(right - left, bottom - top) * margin;
+        int halfSize = MIN_SIZE / 2;
+        float centerX = (left + right) / 2;
+        float centerY = (top + bottom) / 2;
+        Rect region = new Rect(
+                crop.left + (int) Math.min(left - grow, centerX - halfSize),
+                crop.top + (int) Math.min(top - grow, centerY - halfSize),
+                crop.left + (int) Math.ceil(Math.max(right + grow, centerX + halfSize)),
+                crop.top + (int) Math.ceil(Math.max(bottom + grow, centerY + halfSize))
+        );
+        if (!region.intersect(scanCrop) || region.isEmpty()) {
+            _region = null;
+            return;
+        }
+        _region = region;
+        _rotation = rotation;
+    }
+
+    public synchronized void reset() {
+        _region = null;
+    }
+
+    public synchronized long getAttempts() {
+        return _attempts;
+    }
+
+    public synchronized long getHits() {
+        return _hits;
+    }
+}
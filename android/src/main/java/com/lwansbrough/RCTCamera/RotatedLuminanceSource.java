@@ -0,0 +1,205 @@
+package com.lwansbrough.RCTCamera;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * LuminanceSource over the Y plane of an NV21 preview frame, presented rotated clockwise by
+ * 0, 90, 180 or 270 degrees.
+ *
+ * Rows are fetched straight out of the preview buffer through index mapping, so no rotated copy of
+ * the frame is created. Only {@link #getMatrix()} (used by HybridBinarizer) has to lay the pixels
+ * out, and it does so into a caller supplied buffer that is reused from frame to frame.
+ *
+ * An inverted source (light-on-dark codes) flips the luminance on the fly while doing so, instead
+ * of wrapping the source in zxing's InvertedLuminanceSource, which copies the whole matrix.
+ */
+final class RotatedLuminanceSource extends LuminanceSource {
+    // transpose in square tiles so both the reads and the writes stay within a few cache lines
+    private static final int TILE_SIZE = 32;
+
+    private final byte[] _yuvData;
+    private final int _dataWidth;
+    private final int _dataHeight;
+    private final int _rotation;
+    private final int _left;
+    private final int _top;
+    private final int _base;
+    private final int _dx;
+    private final int _dy;
+    private final boolean _inverted;
+    private final int _invertMask;
+    private byte[] _matrix;
+
+    /**
+     * @param yuvData preview frame, only the leading Y plane is read
+     * @param rotation clockwise rotation of the presented image, one of 0, 90, 180, 270
+     * @param matrix scratch buffer for {@link #getMatrix()}, may be null or too small in which case
+     *               a new one is allocated (see {@link #getMatrixBuffer()})
+     */
+    RotatedLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight, int rotation, byte[] matrix) {
+        this(yuvData, dataWidth, dataHeight, rotation, 0, 0,
+                rotation % 180 == 0 ? dataWidth : dataHeight,
+                rotation % 180 == 0 ? dataHeight : dataWidth,
+                matrix);
+    }
+
+    /**
+     * @param left, top, width, height crop rectangle, in rotated coordinates
+     */
+    RotatedLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                           int left, int top, int width, int height, byte[] matrix) {
+        this(yuvData, dataWidth, dataHeight, rotation, left, top, width, height, false, matrix);
+    }
+
+    /**
+     * @param inverted whether to present the luminance inverted
+     */
+    RotatedLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                           int left, int top, int width, int height, boolean inverted, byte[] matrix) {
+        super(width, height);
+
+        int rotatedWidth = rotation % 180 == 0 ? dataWidth : dataHeight;
+        int rotatedHeight = rotation % 180 == 0 ? dataHeight : dataWidth;
+        if (left < 0 || top < 0 || left + width > rotatedWidth || top + height > rotatedHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+
+        _yuvData = yuvData;
+        _dataWidth = dataWidth;
+        _dataHeight = dataHeight;
+        _rotation = rotation;
+        _left = left;
+        _top = top;
+        _inverted = inverted;
+        _invertMask = inverted ? 0xff : 0;
+        _matrix = matrix;
+
+        // Y plane offset of rotated pixel (x, y) is _base + x * _dx + y * _dy
+        int base;
+        switch (rotation) {
+            case 0:
+                base = 0;
+                _dx = 1;
+                _dy = dataWidth;
+                break;
+            case 90:
+                base = (dataHeight - 1) * dataWidth;
+                _dx = -dataWidth;
+                _dy = 1;
+                break;
+            case 180:
+                base = dataHeight * dataWidth - 1;
+                _dx = -1;
+                _dy = -dataWidth;
+                break;
+            case 270:
+                base = dataWidth - 1;
+                _dx = dataWidth;
+                _dy = -1;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        _base = base + left * _dx + top * _dy;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+
+        int offset = _base + y * _dy;
+        if (_dx == 1 && !_inverted) {
+            System.arraycopy(_yuvData, offset, row, 0, width);
+        } else {
+            int invertMask = _invertMask;
+            for (int x = 0; x < width; x++) {
+                row[x] = (byte) (_yuvData[offset] ^ invertMask);
+                offset += _dx;
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+
+        // unrotated and uncropped, the Y plane already is the matrix
+        if (_rotation == 0 && width == _dataWidth && height == _dataHeight && !_inverted) {
+            return _yuvData;
+        }
+
+        int area = width * height;
+        if (_matrix == null || _matrix.length < area) {
+            _matrix = new byte[area];
+        }
+        byte[] matrix = _matrix;
+
+        if (_dx == 1 && !_inverted) {
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(_yuvData, _base + y * _dy, matrix, y * width, width);
+            }
+            return matrix;
+        }
+
+        int invertMask = _invertMask;
+        for (int tileY = 0; tileY < height; tileY += TILE_SIZE) {
+            int maxY = Math.min(tileY + TILE_SIZE, height);
+            for (int tileX = 0; tileX < width; tileX += TILE_SIZE) {
+                int maxX = Math.min(tileX + TILE_SIZE, width);
+                for (int y = tileY; y < maxY; y++) {
+                    int offset = _base + tileX * _dx + y * _dy;
+                    int outputOffset = y * width;
+                    for (int x = tileX; x < maxX; x++) {
+                        matrix[outputOffset + x] = (byte) (_yuvData[offset] ^ invertMask);
+                        offset += _dx;
+                    }
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * The buffer {@link #getMatrix()} wrote into, to be handed to the next frame's source.
+     */
+    byte[] getMatrixBuffer() {
+        return _matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new RotatedLuminanceSource(_yuvData, _dataWidth, _dataHeight, _rotation,
+                _left + left, _top + top, width, height, _inverted, null);
+    }
+
+    @Override
+    public LuminanceSource invert() {
+        return new RotatedLuminanceSource(_yuvData, _dataWidth, _dataHeight, _rotation,
+                _left, _top, getWidth(), getHeight(), !_inverted, null);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        int rotatedWidth = _rotation % 180 == 0 ? _dataWidth : _dataHeight;
+        return new RotatedLuminanceSource(_yuvData, _dataWidth, _dataHeight, (_rotation + 270) % 360,
+                _top, rotatedWidth - _left - getWidth(), getHeight(), getWidth(), _inverted, null);
+    }
+}
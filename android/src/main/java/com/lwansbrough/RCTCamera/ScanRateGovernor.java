@@ -0,0 +1,161 @@
+package com.lwansbrough.RCTCamera;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+/**
+ * Decides how many preview frames per second are handed to the decoder.
+ *
+ * The target rate starts from the configured maximum and is lowered:
+ *  - to the idle rate while no code was found for a while, ramping back up on the next hit,
+ *  - so that decoding keeps the worker busy at most MAX_DUTY_CYCLE of the time, from the measured
+ *    decode latency,
+ *  - when the battery runs low, and increasingly as the device heats up.
+ */
+class ScanRateGovernor {
+    public static final float DEFAULT_IDLE_RATE = 3;
+
+    private static final long IDLE_AFTER = 2000;
+    private static final long DEVICE_STATE_INTERVAL = 5000;
+    private static final float MAX_DUTY_CYCLE = 0.75f;
+    private static final float MIN_RATE = 1;
+    private static final float LOW_BATTERY = 0.15f;
+    private static final double AVERAGE_WEIGHT = 0.2;
+
+    private float _maxRate = 0;
+    private float _idleRate = DEFAULT_IDLE_RATE;
+
+    private double _latencyAverage = 0;
+    private long _lastHitTime = 0;
+    private long _lastFrameTime = 0;
+    private double _intervalAverage = 0;
+
+    private long _deviceStateTime = -DEVICE_STATE_INTERVAL;
+    private float _batteryLevel = 1;
+    private boolean _charging = false;
+    private int _thermalStatus = 0;
+
+    /**
+     * @param maxRate highest decode rate in frames per second, 0 decodes every frame
+     */
+    public synchronized void configure(float maxRate, float idleRate) {
+        _maxRate = maxRate;
+        _idleRate = idleRate > 0 ? idleRate : DEFAULT_IDLE_RATE;
+    }
+
+    /**
+     * Whether the preview frame arriving now should be decoded. Called for every preview frame.
+     */
+    public synchronized boolean shouldDecode(Context context, long now) {
+        if (_maxRate <= 0) {
+            recordFrame(now);
+            return true;
+        }
+
+        if (now - _deviceStateTime >= DEVICE_STATE_INTERVAL) {
+            _deviceStateTime = now;
+            updateDeviceState(context);
+        }
+
+        if (_lastFrameTime != 0 && now - _lastFrameTime < 1000 / getTargetRate(now)) {
+            return false;
+        }
+        recordFrame(now);
+        return true;
+    }
+
+    /**
+     * Feeds back how long a decoded frame took and whether it held a code.
+     */
+    public synchronized void recordDecode(long latencyNanos, boolean hit, long now) {
+        double latency = latencyNanos / 1e6;
+        _latencyAverage = _latencyAverage == 0 ? latency : _latencyAverage + (latency - _latencyAverage) * AVERAGE_WEIGHT;
+        if (hit) {
+            _lastHitTime = now;
+        }
+    }
+
+    private void recordFrame(long now) {
+        if (_lastFrameTime != 0) {
+            long interval = now - _lastFrameTime;
+            _intervalAverage = _intervalAverage == 0 ? interval : _intervalAverage + (interval - _intervalAverage) * AVERAGE_WEIGHT;
+        }
+        _lastFrameTime = now;
+    }
+
+    private float getTargetRate(long now) {
+        float rate = _maxRate;
+        if (now - _lastHitTime > IDLE_AFTER) {
+            rate = Math.min(rate, _idleRate);
+        }
+        if (_latencyAverage > 0) {
+            rate = Math.min(rate, (float) (1000 * MAX_DUTY_CYCLE / _latencyAverage));
+        }
+        if (_batteryLevel < LOW_BATTERY && !_charging) {
+            rate /= 2;
+        }
+        if (_thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            rate = Math.min(rate, MIN_RATE);
+        } else if (_thermalStatus == PowerManager.THERMAL_STATUS_MODERATE) {
+            rate /= 2;
+        } else if (_thermalStatus == PowerManager.THERMAL_STATUS_LIGHT) {
+            rate *= 0.75f;
+        }
+        return Math.max(MIN_RATE, rate);
+    }
+
+    private void updateDeviceState(Context context) {
+        if (context == null) {
+            return;
+        }
+
+        // sticky broadcast, no receiver is actually registered
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery != null) {
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) {
+                _batteryLevel = (float) level / scale;
+            }
+            int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            _charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (powerManager != null) {
+                _thermalStatus = powerManager.getCurrentThermalStatus();
+            }
+        }
+    }
+
+    /**
+     * Decode rate currently aimed for, in frames per second; 0 when the governor is off.
+     */
+    public synchronized double getTargetRate() {
+        return _maxRate <= 0 ? 0 : getTargetRate(System.currentTimeMillis());
+    }
+
+    /**
+     * Rate at which frames were actually handed to the decoder recently, in frames per second.
+     */
+    public synchronized double getLiveRate() {
+        return _intervalAverage == 0 ? 0 : 1000 / _intervalAverage;
+    }
+
+    public synchronized double getAverageLatency() {
+        return _latencyAverage;
+    }
+
+    public synchronized double getBatteryLevel() {
+        return _batteryLevel;
+    }
+
+    public synchronized int getThermalStatus() {
+        return _thermalStatus;
+    }
+}
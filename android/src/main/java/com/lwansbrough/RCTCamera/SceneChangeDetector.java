@@ -0,0 +1,118 @@
+package com.lwansbrough.RCTCamera;
+
+/**
+ * Tells whether a preview frame differs enough from the last decoded one to be worth decoding, so a
+ * scanner pointed at an empty counter does not decode the same scene over and over.
+ *
+ * Frames are compared through a tiny luma thumbnail: the mean absolute difference between the
+ * thumbnail of a frame and the one of the last decoded frame must reach `threshold` (in luma
+ * levels). A static scene is still decoded again once `maxSkipInterval` milliseconds passed.
+ */
+class SceneChangeDetector {
+    public static final int DEFAULT_MAX_SKIP_INTERVAL = 1000;
+
+    private static final int THUMBNAIL_WIDTH = 32;
+    private static final int THUMBNAIL_HEIGHT = 24;
+    private static final int CELL_SAMPLES = 4;
+
+    private byte[] _reference = new byte[THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT];
+    private byte[] _current = new byte[THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT];
+    private boolean _hasReference = false;
+    private long _referenceTime = 0;
+
+    private float _threshold = 0;
+    private int _maxSkipInterval = DEFAULT_MAX_SKIP_INTERVAL;
+    private double _lastDifference = 0;
+    private long _skippedCount = 0;
+    private long _changedCount = 0;
+
+    /**
+     * @param threshold mean luma difference a frame must reach to be decoded, 0 disables detection
+     */
+    public synchronized void configure(float threshold, int maxSkipInterval) {
+        if (threshold <= 0) {
+            _hasReference = false;
+        }
+        _threshold = threshold;
+        _maxSkipInterval = maxSkipInterval;
+    }
+
+    /**
+     * Thumbnails the luma plane of an NV21 frame and compares it with the last decoded frame. Call
+     * {@link #commit(long)} once the frame is actually decoded.
+     */
+    public synchronized boolean hasChanged(byte[] yuv, int width, int height, long now) {
+        if (_threshold <= 0) {
+            return true;
+        }
+
+        thumbnail(yuv, width, height, _current);
+        if (!_hasReference) {
+            _changedCount++;
+            return true;
+        }
+
+        int sum = 0;
+        for (int i = 0; i < _current.length; i++) {
+            sum += Math.abs((_current[i] & 0xff) - (_reference[i] & 0xff));
+        }
+        _lastDifference = (double) sum / _current.length;
+
+        if (_lastDifference >= _threshold || now - _referenceTime >= _maxSkipInterval) {
+            _changedCount++;
+            return true;
+        }
+        _skippedCount++;
+        return false;
+    }
+
+    /**
+     * Makes the frame last passed to {@link #hasChanged} the reference for the following ones.
+     */
+    public synchronized void commit(long now) {
+        if (_threshold <= 0) {
+            return;
+        }
+        byte[] reference = _reference;
+        _reference = _current;
+        _current = reference;
+        _hasReference = true;
+        _referenceTime = now;
+    }
+
+    /**
+     * Averages a CELL_SAMPLES x CELL_SAMPLES grid of pixels of every thumbnail cell.
+     */
+    private static void thumbnail(byte[] yuv, int width, int height, byte[] thumbnail) {
+        int cellWidth = width / THUMBNAIL_WIDTH;
+        int cellHeight = height / THUMBNAIL_HEIGHT;
+        int stepX = Math.max(1, cellWidth / CELL_SAMPLES);
+        int stepY = Math.max(1, cellHeight / CELL_SAMPLES);
+
+        for (int cellY = 0; cellY < THUMBNAIL_HEIGHT; cellY++) {
+            for (int cellX = 0; cellX < THUMBNAIL_WIDTH; cellX++) {
+                int sum = 0;
+                int samples = 0;
+                for (int dy = 0, y = cellY * cellHeight; dy < CELL_SAMPLES && y < height; dy++, y += stepY) {
+                    for (int dx = 0, x = cellX * cellWidth; dx < CELL_SAMPLES && x < width; dx++, x += stepX) {
+                        sum += yuv[y * width + x] & 0xff;
+                        samples++;
+                    }
+                }
+                thumbnail[cellY * THUMBNAIL_WIDTH + cellX] = (byte) (samples == 0 ? 0 : sum / samples);
+            }
+        }
+    }
+
+    public synchronized double getLastDifference() {
+        return _lastDifference;
+    }
+
+    public synchronized long getSkippedCount() {
+        return _skippedCount;
+    }
+
+    public synchronized long getChangedCount() {
+        return _changedCount;
+    }
+}
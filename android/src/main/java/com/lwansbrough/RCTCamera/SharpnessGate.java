@@ -0,0 +1,97 @@
+package com.lwansbrough.RCTCamera;
+
+/**
+ * Cheap pre-filter skipping motion-blurred frames before they reach zxing.
+ *
+ * A frame's sharpness is the variance of the Laplacian of its luma plane, sampled on a sparse grid.
+ * Blur is relative to the scene, so the score is compared against a running average of recent
+ * scores instead of a fixed value: a frame is decoded when it reaches `threshold` times that
+ * average. A scene that is blurry throughout still gets decoded as its average drops along.
+ */
+class SharpnessGate {
+    private static final int SAMPLE_STEP = 4;
+    private static final double BASELINE_WEIGHT = 0.1;
+
+    private float _threshold = 0;
+    private double _baseline = -1;
+    private double _lastScore = 0;
+    private long _evaluatedCount = 0;
+    private long _skippedCount = 0;
+
+    /**
+     * @param threshold fraction of the running average sharpness a frame must reach, 0 disables
+     *                  the gate
+     */
+    public synchronized void configure(float threshold) {
+        if (threshold <= 0) {
+            _baseline = -1;
+        }
+        _threshold = threshold;
+    }
+
+    /**
+     * Scores the luma plane of an NV21 frame and tells whether it is sharp enough to decode.
+     */
+    public boolean accept(byte[] yuv, int width, int height) {
+        float threshold;
+        synchronized (this) {
+            threshold = _threshold;
+        }
+        if (threshold <= 0) {
+            return true;
+        }
+
+        double score = score(yuv, width, height);
+        synchronized (this) {
+            _evaluatedCount++;
+            _lastScore = score;
+            boolean accepted = _baseline < 0 || score >= _baseline * threshold;
+            _baseline = _baseline < 0 ? score : _baseline + (score - _baseline) * BASELINE_WEIGHT;
+            if (!accepted) {
+                _skippedCount++;
+            }
+            return accepted;
+        }
+    }
+
+    private static double score(byte[] yuv, int width, int height) {
+        long sum = 0;
+        long sumOfSquares = 0;
+        int samples = 0;
+        for (int y = 1; y < height - 1; y += SAMPLE_STEP) {
+            int offset = y * width;
+            for (int x = 1; x < width - 1; x += SAMPLE_STEP) {
+                int center = offset + x;
+                int laplacian = 4 * (yuv[center] & 0xff)
+                        - (yuv[center - 1] & 0xff)
+                        - (yuv[center + 1] & 0xff)
+                        - (yuv[center - width] & 0xff)
+                        - (yuv[center + width] & 0xff);
+                sum += laplacian;
+                sumOfSquares += laplacian * laplacian;
+                samples++;
+            }
+        }
+        if (samples == 0) {
+            return 0;
+        }
+        double mean = (double) sum / samples;
+        return (double) sumOfSquares / samples - mean * mean;
+    }
+
+    public synchronized double getLastScore() {
+        return _lastScore;
+    }
+
+    public synchronized double getBaseline() {
+        return Math.max(0, _baseline);
+    }
+
+    public synchronized long getEvaluatedCount() {
+        return _evaluatedCount;
+    }
+
+    public synchronized long getSkippedCount() {
+        return _skippedCount;
+    }
+}
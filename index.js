@@ -48,12 +48,14 @@ function convertNativeProps(props) {
     newProps.captureTarget = Camera.constants.CaptureTarget[props.captureTarget];
   }
 
+  const hasBarCodeListener = typeof props.onBarCodeRead === 'function' || typeof props.onBarCodesRead === 'function';
+
   // do not register barCodeTypes if no barcode listener
-  if (typeof props.onBarCodeRead !== 'function') {
+  if (!hasBarCodeListener) {
     newProps.barCodeTypes = [];
   }
 
-  newProps.barcodeScannerEnabled = typeof props.onBarCodeRead === 'function'
+  newProps.barcodeScannerEnabled = hasBarCodeListener
 
   return newProps;
 }
@@ -98,12 +100,45 @@ export default class Camera extends Component {
     ]),
     keepAwake: PropTypes.bool,
     onBarCodeRead: PropTypes.func,
+    onBarCodeVisible: PropTypes.func,
+    onBarCodesRead: PropTypes.func,
     barcodeScannerEnabled: PropTypes.bool,
     onFocusChanged: PropTypes.func,
     onZoomChanged: PropTypes.func,
     mirrorImage: PropTypes.bool,
     fixOrientation: PropTypes.bool,
+    orientationStrategy: PropTypes.oneOf(['pixels', 'exif', 'lossless']),
     barCodeTypes: PropTypes.array,
+    barCodeDedupeTtl: PropTypes.number,
+    barCodeDedupeCapacity: PropTypes.number,
+    barCodeHeartbeatInterval: PropTypes.number,
+    barCodeBatchInterval: PropTypes.number,
+    multiBarcode: PropTypes.bool,
+    multiBarcodeMaxResults: PropTypes.number,
+    sharpnessThreshold: PropTypes.number,
+    sceneChangeThreshold: PropTypes.number,
+    sceneChangeMaxSkip: PropTypes.number,
+    roiTracking: PropTypes.bool,
+    roiTrackingMargin: PropTypes.number,
+    scanRate: PropTypes.number,
+    idleScanRate: PropTypes.number,
+    binarizer: PropTypes.oneOf(['hybrid', 'global', 'tiered', 'alternate']),
+    adaptiveReaders: PropTypes.bool,
+    tryHarderAfter: PropTypes.number,
+    invertedScan: PropTypes.oneOf(['off', 'alternate', 'fallback']),
+    parallelDecode: PropTypes.bool,
+    previewBufferPoolSize: PropTypes.number,
+    captureParallelism: PropTypes.number,
+    captureMemoryBudget: PropTypes.number,
+    captureQueueDepth: PropTypes.number,
+    pyramidFactor: PropTypes.oneOf([1, 2, 4]),
+    pyramidEscalateAfter: PropTypes.number,
+    scanArea: PropTypes.shape({
+      x: PropTypes.number,
+      y: PropTypes.number,
+      width: PropTypes.number,
+      height: PropTypes.number
+    }),
     orientation: PropTypes.oneOfType([
       PropTypes.string,
       PropTypes.number
@@ -127,6 +162,7 @@ export default class Camera extends Component {
     type: CameraManager.Type.back,
     orientation: CameraManager.Orientation.auto,
     fixOrientation: false,
+    orientationStrategy: 'pixels',
     captureAudio: false,
     captureMode: CameraManager.CaptureMode.still,
     captureTarget: CameraManager.CaptureTarget.cameraRoll,
@@ -145,6 +181,8 @@ export default class Camera extends Component {
   static checkDeviceAuthorizationStatus = CameraManager.checkDeviceAuthorizationStatus;
   static checkVideoAuthorizationStatus = CameraManager.checkVideoAuthorizationStatus;
   static checkAudioAuthorizationStatus = CameraManager.checkAudioAuthorizationStatus;
+  static getBarCodeScannerStats = CameraManager.getBarCodeScannerStats;
+  static getCaptureStats = CameraManager.getCaptureStats;
 
   setNativeProps(props) {
     this.refs[CAMERA_REF].setNativeProps(props);
@@ -180,14 +218,15 @@ export default class Camera extends Component {
   }
 
   componentWillReceiveProps(newProps) {
-    const { onBarCodeRead } = this.props
-    if (onBarCodeRead !== newProps.onBarCodeRead) {
+    const { onBarCodeRead, onBarCodeVisible, onBarCodesRead } = this.props
+    if (onBarCodeRead !== newProps.onBarCodeRead || onBarCodeVisible !== newProps.onBarCodeVisible ||
+        onBarCodesRead !== newProps.onBarCodesRead) {
       this._addOnBarCodeReadListener(newProps)
     }
   }
 
   _addOnBarCodeReadListener(props) {
-    const { onBarCodeRead } = props || this.props
+    const { onBarCodeRead, onBarCodeVisible, onBarCodesRead } = props || this.props
     this._removeOnBarCodeReadListener()
     if (onBarCodeRead) {
       this.cameraBarCodeReadListener = Platform.select({
@@ -195,12 +234,28 @@ export default class Camera extends Component {
         android: DeviceEventEmitter.addListener('CameraBarCodeReadAndroid',  this._onBarCodeRead)
       })
     }
+    if (onBarCodeVisible && Platform.OS === 'android') {
+      this.cameraBarCodeVisibleListener = DeviceEventEmitter.addListener('CameraBarCodeVisibleAndroid', this._onBarCodeVisible)
+    }
+    if (onBarCodesRead && Platform.OS === 'android') {
+      this.cameraBarCodesReadListener = DeviceEventEmitter.addListener('CameraBarCodesReadAndroid', this._onBarCodesRead)
+    }
   }
   _removeOnBarCodeReadListener() {
     const listener = this.cameraBarCodeReadListener
     if (listener) {
       listener.remove()
     }
+    const visibleListener = this.cameraBarCodeVisibleListener
+    if (visibleListener) {
+      visibleListener.remove()
+      this.cameraBarCodeVisibleListener = null
+    }
+    const batchListener = this.cameraBarCodesReadListener
+    if (batchListener) {
+      batchListener.remove()
+      this.cameraBarCodesReadListener = null
+    }
   }
 
   render() {
@@ -216,6 +271,18 @@ export default class Camera extends Component {
     }
   };
 
+  _onBarCodesRead = (data) => {
+    if (this.props.onBarCodesRead) {
+      this.props.onBarCodesRead(data)
+    }
+  };
+
+  _onBarCodeVisible = (data) => {
+    if (this.props.onBarCodeVisible) {
+      this.props.onBarCodeVisible(data)
+    }
+  };
+
   capture(options) {
     const props = convertNativeProps(this.props);
     options = {
@@ -230,6 +297,7 @@ export default class Camera extends Component {
       description: '',
       mirrorImage: props.mirrorImage,
       fixOrientation: props.fixOrientation,
+      orientationStrategy: props.orientationStrategy,
       ...options
     };
 